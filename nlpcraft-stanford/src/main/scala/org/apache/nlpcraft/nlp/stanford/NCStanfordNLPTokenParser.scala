@@ -37,6 +37,9 @@ class NCStanfordNLPTokenParser(stanford: StanfordCoreNLP) extends NCTokenParser:
 
     private def nvl(v: String, dflt : => String): String = if v != null then v else dflt
 
+    /** @inheritdoc */
+    override val getProducedTokenProperties: Set[String] = Set("pos", "lemma")
+
     /** @inheritdoc */
     override def tokenize(text: String): List[NCToken] =
         val doc = new CoreDocument(text)
@@ -51,3 +51,12 @@ trait NCEntityParser extends NCLifecycle:
       */
     def parse(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): List[NCEntity]
 
+    /**
+      * Gets names of the [[NCToken token]] properties this parser uses. If some of them are not produced
+      * by the pipeline token enrichers, the warning is logged once on the pipeline start.
+      * Default value is an empty set.
+      *
+      * @see [[NCTokenEnricher.getProducedTokenProperties]]
+      */
+    def getRequiredTokenProperties: Set[String] = Set.empty
+
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft
+
+/**
+  * Custom IDL function. Model provides its custom functions via [[NCModel.getIntentFunctions]] method and can
+  * call them in its intents the same way as the built-in IDL functions, e.g. `term={my_fun(ent_text, 10) == 'x'}`.
+  * Number of the call parameters is checked when the intent is compiled.
+  *
+  * Custom function is called each time the expression that contains it is evaluated, its result is never cached
+  * or computed in advance. Parameters are passed as evaluated by IDL, i.e. `java.lang.Long`, `java.lang.Double`,
+  * `java.lang.Boolean`, `String`, `java.util.List`, `java.util.Map` or [[NCEntity]] values, or `null`.
+  * Function should return values of the same types, other Java collections are converted to `java.util.List`.
+  *
+  * @see [[NCModel.getIntentFunctions]]
+  */
+trait NCIntentFunction:
+    /**
+      * Gets minimum number of the function parameters. Default implementation returns `0`.
+      *
+      * @return Minimum number of the function parameters.
+      */
+    def getMinArgs: Int = 0
+
+    /**
+      * Gets maximum number of the function parameters. Default implementation returns `Int.MaxValue`, i.e.
+      * number of the parameters is not limited.
+      *
+      * @return Maximum number of the function parameters.
+      */
+    def getMaxArgs: Int = Int.MaxValue
+
+    /**
+      * Calls this function.
+      *
+      * @param args Values of the call parameters.
+      * @return Function result.
+      */
+    def call(args: List[Any]): Any
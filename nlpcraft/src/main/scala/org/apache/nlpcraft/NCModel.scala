@@ -51,6 +51,16 @@ trait NCModel(cfg: NCModelConfig, pipeline: NCPipeline):
       */
     def getPipeline: NCPipeline = pipeline
 
+    /**
+      * Gets custom IDL functions that can be used in this model intents along with the built-in ones.
+      * Function name should be a valid IDL identifier and should not clash with the built-in functions names.
+      * Default implementation returns empty map.
+      *
+      * @return Custom IDL functions by their names.
+      * @see [[NCIntentFunction]]
+      */
+    def getIntentFunctions: Map[String, NCIntentFunction] = Map.empty
+
     /**
       * A callback that is called when a fully assembled query context is ready. This is the first of the callbacks
       * that is called on the model and right before the intent matching is performed. It's called always once per
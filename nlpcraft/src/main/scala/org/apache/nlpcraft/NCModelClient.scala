@@ -24,6 +24,7 @@ import org.apache.nlpcraft.internal.ascii.NCAsciiTable
 import org.apache.nlpcraft.internal.conversation.*
 import org.apache.nlpcraft.internal.dialogflow.NCDialogFlowManager
 import org.apache.nlpcraft.internal.impl.*
+import org.apache.nlpcraft.internal.intent.NCIDLPatternCache
 import org.apache.nlpcraft.internal.intent.matcher.*
 import org.apache.nlpcraft.internal.util.*
 
@@ -32,23 +33,50 @@ import java.util.concurrent.*
 import java.util.concurrent.atomic.*
 import java.util.{Objects, UUID}
 import scala.concurrent.ExecutionContext
+import scala.util.{Failure, Try}
+import scala.jdk.FutureConverters.*
+
+/**
+  * [[NCModelClient]] helper.
+  */
+private object NCModelClient:
+    // Maximum time to wait for the asynchronous requests when the client is closed.
+    private final val CLOSE_TIMEOUT = 60 * 1000L
+
+import NCModelClient.*
 
 /**
   * Client API to issue requests again given model. This the primary method of interacting with NLPCraft
   * from the user perspective.
   *
   * @param mdl A data model to issue requests against.
+  * @param exec Executor for asynchronous requests (see [[NCModelClient.askAsync()]]). If `null`, the client
+  *     uses its own cached thread pool which is shut down when this client is closed. Any user-supplied executor,
+  *     including virtual-thread-per-task executor on JDK 21+, is not shut down by this client.
   */
-class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
+class NCModelClient(mdl: NCModel, exec: Executor) extends LazyLogging, AutoCloseable:
+    /**
+      * Creates client that uses its own thread pool for asynchronous requests.
+      *
+      * @param mdl A data model to issue requests against.
+      */
+    def this(mdl: NCModel) = this(mdl, null)
+
     verify()
 
-    private val intents = NCModelScanner.scan(mdl)
+    private val patterns = new NCIDLPatternCache(mdl.getConfig.getRegexCacheSize)
+    private val intents = NCModelScanner.scan(mdl, patterns)
     private val convMgr = NCConversationManager(mdl.getConfig)
     private val dlgMgr = NCDialogFlowManager(mdl.getConfig)
     private val plMgr = NCModelPipelineManager(mdl.getConfig, mdl.getPipeline)
-    private val intentsMgr = NCIntentSolverManager(dlgMgr, convMgr, intents.map(p => p.intent -> p.function).toMap)
+    private val intentsMgr = NCIntentSolverManager(mdl.getConfig, dlgMgr, convMgr, intents.map(p => p.intent -> p.function).toMap)
+    private val ownPool: ExecutorService = if exec == null then Executors.newCachedThreadPool() else null
+    private val executor: Executor = if exec == null then ownPool else exec
+
+    // Completion of the asynchronous requests tasks which are not finished yet.
+    private val tasks = ConcurrentHashMap.newKeySet[CompletableFuture[Unit]]()
 
-    private var closed = false
+    @volatile private var closed = false
 
     init()
 
@@ -64,6 +92,8 @@ class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
         require(cfg.getId != null, "Model ID cannot be null.")
         require(cfg.getName != null, "Model name cannot be null.")
         require(cfg.getVersion != null, "Model version cannot be null.")
+        require(cfg.getTraceSampleRate >= 0.0 && cfg.getTraceSampleRate <= 1.0, "Trace sample rate must be in [0, 1] range.")
+        require(cfg.getMaxSkippedStopWords >= 0, "Maximum number of the skipped stopwords cannot be negative.")
         require(pipeline.getTokenParser != null, "Token parser cannot be null.")
         require(pipeline.getEntityParsers != null && pipeline.getEntityParsers.nonEmpty, "List of entity parsers in the pipeline cannot be null or empty.")
     /**
@@ -74,6 +104,20 @@ class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
         dlgMgr.start()
         plMgr.start()
 
+    /**
+      * Waits for the asynchronous requests tasks, no longer than [[CLOSE_TIMEOUT]] in total.
+      */
+    private def waitTasks(): Unit =
+        val deadline = NCUtils.now() + CLOSE_TIMEOUT
+
+        tasks.forEach(t =>
+            try t.get(Math.max(deadline - NCUtils.now(), 0), TimeUnit.MILLISECONDS)
+            catch case _: TimeoutException => () // Reported below.
+        )
+
+        if !tasks.isEmpty then
+            logger.warn(s"Asynchronous requests are not finished when the model client is closed [count=${tasks.size}]")
+
     /**
       *
       */
@@ -85,16 +129,26 @@ class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
       * @param data
       * @param usrId
       * @param typ
+      * @param ctrl
       */
-    private def ask0(txt: String, data: Map[String, Any], usrId: String, typ: NCIntentSolveType): Either[NCResult, NCMatchedCallback] =
+    private def ask0(
+        txt: String, data: Map[String, Any], usrId: String, typ: NCIntentSolveType, ctrl: NCRequestControl = NCRequestControl.NONE
+    ): Either[NCResult, NCMatchedCallback] =
         require(txt != null, "Input text cannot be null.")
         require(data != null, "Data cannot be null.")
         require(usrId != null, "User id cannot be null.")
 
         checkClosed()
 
-        val plData = plMgr.prepare(txt, data, usrId)
+        solve0(plMgr.prepare(txt, data, usrId, ctrl), typ, ctrl)
 
+    /**
+      *
+      * @param plData
+      * @param typ
+      * @param ctrl
+      */
+    private def solve0(plData: NCPipelineData, typ: NCIntentSolveType, ctrl: NCRequestControl): Either[NCResult, NCMatchedCallback] =
         val userId = plData.request.getUserId
         val convHldr = convMgr.getConversation(userId)
         val allEnts = plData.variants.flatMap(_.getEntities)
@@ -118,7 +172,7 @@ class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
                 override val getVariants: List[NCVariant] = plData.variants
                 override val getTokens: List[NCToken] = plData.tokens
 
-        intentsMgr.solve(mdl, ctx, typ)
+        intentsMgr.solve(mdl, ctx, typ, ctrl)
 
     /**
       * Passes given input text to the model's pipeline for processing.
@@ -136,7 +190,131 @@ class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
       * @throws NCException Thrown in case of any internal errors processing the user input.
       */
     def ask(txt: String, usrId: String, data: Map[String, AnyRef] = Map.empty): NCResult =
-        ask0(txt, data, usrId, NCIntentSolveType.REGULAR).swap.toOption.get
+        ask(txt, usrId, data, mdl.getConfig.getRequestTimeout)
+
+    /**
+      * Version of [[NCModelClient.ask()]] method with explicit request timeout that overrides model's
+      * [[NCModelConfig.getRequestTimeout default]] one.
+      *
+      * @param txt Text of the request.
+      * @param usrId ID of the user to associate with this request.
+      * @param data Data container that will be available to the intent matching IDL.
+      * @param timeout Request timeout in millis. `0` means that request processing time is not limited.
+      * @return Callback result from the winning intent match. This method never returns `null`.
+      * @throws NCTimeoutRejection Thrown if the request processing timeout is exceeded.
+      * @throws NCRejection An exception indicating a rejection of the user input. This exception is thrown
+      *     automatically by the processing logic as well as can be thrown by the user from the intent callback.
+      * @throws NCException Thrown in case of any internal errors processing the user input.
+      */
+    def ask(txt: String, usrId: String, data: Map[String, AnyRef], timeout: Long): NCResult =
+        require(timeout >= 0, "Timeout cannot be negative.")
+
+        ask0(txt, data, usrId, NCIntentSolveType.REGULAR, NCRequestControl(timeout)).swap.toOption.get
+
+    /**
+      * Passes given batch of requests to the model's pipeline for processing.
+      *
+      * Unlike calling [[NCModelClient.ask()]] method for each request, this method passes the whole batch
+      * through the pipeline stage by stage, i.e. each pipeline component processes all requests of the batch
+      * before the next component is called. After that the intents are matched and their callbacks are called
+      * for each request sequentially in the order of the batch, so STM and dialog flow for each user
+      * are updated in the same order as with the individual [[NCModelClient.ask()]] calls.
+      *
+      * Request timeout (see [[NCModelConfig.getRequestTimeout]]) is applied to each request of the batch
+      * separately and counts only the time when this request is processed, not the time it waits for other
+      * requests of the batch.
+      *
+      * @param reqs Batch of requests, where each request is defined by its text, user ID and data container.
+      * @return Callback results or errors (i.e. [[NCRejection]] or [[NCException]]) in the order of the given
+      *     requests. This method never returns `null`.
+      */
+    def askBatch(reqs: Seq[(String, String, Map[String, AnyRef])]): List[Try[NCResult]] =
+        require(reqs != null, "Requests cannot be null.")
+
+        for ((txt, usrId, data) <- reqs)
+            require(txt != null, "Input text cannot be null.")
+            require(data != null, "Data cannot be null.")
+            require(usrId != null, "User id cannot be null.")
+
+        checkClosed()
+
+        // Timeout of each request is counted only while this request is processed, not while it waits for others.
+        val ins = reqs.map { (txt, usrId, data) => NCPipelineInput(txt, data, usrId, NCRequestControl.mkBatch(mdl.getConfig.getRequestTimeout)) }
+
+        plMgr.prepareBatch(ins).zip(ins).map {
+            case (Right(plData), in) =>
+                in.ctrl.resume()
+
+                try Try(solve0(plData, NCIntentSolveType.REGULAR, in.ctrl).swap.toOption.get)
+                finally in.ctrl.suspend()
+            case (Left(e), _) => Failure(e)
+        }
+
+    /**
+      * Asynchronous version of [[NCModelClient.ask()]] method. The request is processed by this client's executor
+      * and the calling thread is not blocked.
+      *
+      * Returned future can be cancelled or completed by timeout (e.g. via `orTimeout(...)` method). In this case
+      * the processing of the request stops at the next pipeline or intent matching step and intent callback
+      * is not called if it was not called yet.
+      *
+      * @param txt Text of the request.
+      * @param usrId ID of the user to associate with this request.
+      * @param data Optional data container that will be available to the intent matching IDL.
+      * @return Future of the callback result from the winning intent match. This method never returns `null`.
+      *     The future is completed exceptionally with [[NCRejection]] or [[NCException]] in the same cases when
+      *     [[NCModelClient.ask()]] method throws them.
+      */
+    def askAsync(txt: String, usrId: String, data: Map[String, AnyRef] = Map.empty): CompletableFuture[NCResult] =
+        val fut = new CompletableFuture[NCResult]()
+        val task = new CompletableFuture[Unit]()
+
+        // Task is registered under the same lock which is used by `close`, so `close` waits for it.
+        tasks.synchronized {
+            checkClosed()
+            tasks.add(task)
+        }
+
+        def finish(): Unit =
+            tasks.remove(task)
+            task.complete(())
+
+        // Future completed by the user (cancel or timeout) stops the request processing.
+        val ctrl = NCRequestControl(() => fut.isDone, mdl.getConfig.getRequestTimeout)
+
+        try
+            executor.execute(() =>
+                var res: NCResult = null
+                var err: Throwable = null
+
+                try
+                    if !fut.isDone then res = ask0(txt, data, usrId, NCIntentSolveType.REGULAR, ctrl).swap.toOption.get
+                catch case e: Throwable => err = e
+
+                // Task is finished before the future is completed, so the future dependent stages
+                // which are run by this thread can close the client.
+                finish()
+
+                if err != null then fut.completeExceptionally(err)
+                else if res != null then fut.complete(res)
+            )
+        catch
+            case e: RejectedExecutionException =>
+                finish()
+                fut.completeExceptionally(e)
+
+        fut
+
+    /**
+      * Scala [[scala.concurrent.Future]] based version of [[NCModelClient.askAsync()]] method.
+      *
+      * @param txt Text of the request.
+      * @param usrId ID of the user to associate with this request.
+      * @param data Optional data container that will be available to the intent matching IDL.
+      * @return Future of the callback result from the winning intent match. This method never returns `null`.
+      */
+    def askFuture(txt: String, usrId: String, data: Map[String, AnyRef] = Map.empty): scala.concurrent.Future[NCResult] =
+        askAsync(txt, usrId, data).asScala
 
     /**
       * Removes all entities from the short-term-memory (STM) associated with given user ID.
@@ -186,13 +364,23 @@ class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
       * Closes this client releasing its associated resources.
       */
     override def close(): Unit =
-        checkClosed()
-        closed = true
+        tasks.synchronized {
+            checkClosed()
+            closed = true
+        }
+
+        // Waits for in-flight asynchronous requests, including the ones run by the user-supplied executor.
+        // The pool isn't awaited, this method can be called by its thread.
+        if ownPool != null then ownPool.shutdown()
+        waitTasks()
+
         plMgr.close()
         dlgMgr.close()
         convMgr.close()
         intentsMgr.close()
 
+        logger.debug(s"Model closed [id=${mdl.getConfig.getId}, regexCache=$patterns]")
+
     /**
       * Passes given input text to the model's pipeline for processing.
       *
@@ -212,4 +400,5 @@ class NCModelClient(mdl: NCModel) extends LazyLogging, AutoCloseable:
       */
     def debugAsk(txt: String, usrId: String, saveHist: Boolean, data: Map[String, AnyRef] = Map.empty): NCMatchedCallback =
         import NCIntentSolveType.*
-        ask0(txt, data, usrId, if saveHist then SEARCH else SEARCH_NO_HISTORY).toOption.get
\ No newline at end of file
+
+        ask0(txt, data, usrId, if saveHist then SEARCH else SEARCH_NO_HISTORY, NCRequestControl(mdl.getConfig.getRequestTimeout)).toOption.get
\ No newline at end of file
@@ -33,6 +33,46 @@ object NCModelConfig:
       */
     val DFLT_CONV_DEPTH = 3
 
+    /**
+      * Default number of workers per pipeline stage is 0, i.e. pipelined execution mode is disabled.
+      */
+    val DFLT_PIPELINE_STAGE_WORKERS = 0
+
+    /**
+      * Default pipeline stage queue size is 1024.
+      */
+    val DFLT_PIPELINE_STAGE_QUEUE_SIZE = 1024
+
+    /**
+      * Default trace sample rate is 1.0, i.e. all requests are traced.
+      */
+    val DFLT_TRACE_SAMPLE_RATE = 1.0
+
+    /**
+      * Default maximum number of variants is 1000.
+      */
+    val DFLT_MAX_VARIANTS = 1000
+
+    /**
+      * Default request timeout is 0, i.e. requests processing time is not limited.
+      */
+    val DFLT_REQUEST_TIMEOUT: Long = 0
+
+    /**
+      * Default parallel intent solving flag is `false`.
+      */
+    val DFLT_PARALLEL_INTENT_SOLVING = false
+
+    /**
+      * Default maximum size of the IDL regular expressions cache is 1000.
+      */
+    val DFLT_REGEX_CACHE_SIZE = 1000
+
+    /**
+      * Default maximum number of the stopwords skipped inside one synonym is not limited.
+      */
+    val DFLT_MAX_SKIPPED_STOPWORDS: Int = Int.MaxValue
+
     /**
       * Creates model configuration with given parameters.
       *
@@ -128,3 +168,71 @@ trait NCModelConfig extends NCPropertyMap:
       * which the older requests will be "forgotten" and removed from the conversation context.
       */
     def getConversationDepth: Int = DFLT_CONV_DEPTH
+
+    /**
+      * Gets number of worker threads per each pipeline stage. If positive, the pipeline works in pipelined
+      * execution mode: each pipeline component has its own bounded queue and worker pool, so while one request
+      * is processed by the entity parser, the next one can be already tokenized. If `0` (default), each request
+      * passes all pipeline components in the calling thread.
+      */
+    def getPipelineStageWorkers: Int = DFLT_PIPELINE_STAGE_WORKERS
+
+    /**
+      * Gets the queue size of each pipeline stage in pipelined execution mode. When the stage queue is full,
+      * the thread submitting the task, i.e. the worker of the previous stage or the calling thread for the first
+      * stage, blocks until the queue has free space, so the slow stage backpressures the preceding ones.
+      * Default value is 1024.
+      *
+      * @see [[getPipelineStageWorkers]]
+      */
+    def getPipelineStageQueueSize: Int = DFLT_PIPELINE_STAGE_QUEUE_SIZE
+
+    /**
+      * Gets the fraction of requests, from `0.0` to `1.0`, for which the trace output is logged. The trace output
+      * includes tokens and variants tables, intent matches and the dialog flow. It is built only for the sampled
+      * requests and only if the corresponding log level is enabled. Default value is `1.0`, i.e. all requests
+      * are traced.
+      */
+    def getTraceSampleRate: Double = DFLT_TRACE_SAMPLE_RATE
+
+    /**
+      * Gets maximum number of [[NCVariant variants]] generated for one request. Each variant is a maximal set of
+      * non-overlapping entities, so for the long input with many overlapping entities the number of variants
+      * can grow exponentially. Extra variants are dropped with a warning. Default value is 1000.
+      */
+    def getMaxVariants: Int = DFLT_MAX_VARIANTS
+
+    /**
+      * Gets default timeout in millis for the request processing, including the pipeline processing and the intent
+      * matching. The timeout is checked between processing steps, and when it is exceeded the request is rejected
+      * with [[NCTimeoutRejection]]. Note that intent callback is not interrupted. `0` (default) means that
+      * requests processing time is not limited.
+      *
+      * @see [[NCModelClient.ask()]]
+      */
+    def getRequestTimeout: Long = DFLT_REQUEST_TIMEOUT
+
+    /**
+      * Gets flag indicating whether the intents are matched against the request variants in parallel. If `true`,
+      * each (variant, intent) pair is solved as a separate task of the client fork/join pool. Matches are ranked
+      * the same way in both modes, so the result doesn't depend on this flag. Default value is `false`.
+      */
+    def isParallelIntentSolving: Boolean = DFLT_PARALLEL_INTENT_SOLVING
+
+    /**
+      * Gets maximum number of the compiled regular expressions cached for the IDL functions `regex`, `replace`,
+      * `split` and `split_trim` whose pattern is not a constant. Constant patterns are compiled once, together
+      * with the intent, and they are not limited by this value. Cache is shared by all intents of the model client.
+      * Default value is [[NCModelConfig.DFLT_REGEX_CACHE_SIZE]].
+      */
+    def getRegexCacheSize: Int = DFLT_REGEX_CACHE_SIZE
+
+    /**
+      * Gets maximum number of the stopwords which can be skipped inside one synonym when the semantic entity parser
+      * matches the input text, e.g. `value the 5` is matched by the synonym `value 5` with one skipped stopword.
+      * Sequence of more than two consecutive stopwords is skipped entirely or not skipped at all. Number of the
+      * checked tokens sequences grows exponentially with this value, so a small limit can be set for the models
+      * with long synonyms and input texts with many stopwords. Value cannot be negative. Default value is
+      * [[NCModelConfig.DFLT_MAX_SKIPPED_STOPWORDS]], i.e. number of the skipped stopwords isn't limited.
+      */
+    def getMaxSkippedStopWords: Int = DFLT_MAX_SKIPPED_STOPWORDS
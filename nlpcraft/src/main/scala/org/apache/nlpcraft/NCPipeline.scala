@@ -92,3 +92,10 @@ trait NCPipeline:
       * Gets optional list of entity mappers. Can return an empty list but never `null`.
       */
     def getEntityMappers: List[NCEntityMapper] = List.empty
+
+    /**
+      * Gets flag indicating whether entity parsers can be called in parallel for the same request. It can
+      * be enabled only if all entity parsers are side-effect free and independent of each other. Results of
+      * the parsers are always merged in the parsers list order. Default value is `false`.
+      */
+    def isParallelEntityParsers: Boolean = false
@@ -38,6 +38,9 @@ class NCPipelineBuilder:
     private val entVals: Buf[NCEntityValidator] = Buf.empty
     private val entMappers: Buf[NCEntityMapper] = Buf.empty
     private val varFilters: Buf[NCVariantFilter] = Buf.empty
+    private var parEntParsers: Boolean = false
+    // English stemmer shared by all English components, so they share the request stems.
+    private lazy val enStemmer: NCStemmer = new NCEnStemmer
 
     private def mkEnOpenNLPTokenParser: NCOpenNLPTokenParser =
         new NCOpenNLPTokenParser(NCResourceReader.getPath("opennlp/en-token.bin"))
@@ -213,10 +216,10 @@ class NCPipelineBuilder:
     private def setEnComponents(): Unit =
         tokParser = mkEnOpenNLPTokenParser.?
         tokEnrichers += new NCOpenNLPTokenEnricher(NCResourceReader.getPath("opennlp/en-pos-maxent.bin"), NCResourceReader.getPath("opennlp/en-lemmatizer.dict"))
-        tokEnrichers += new NCEnStopWordsTokenEnricher
+        tokEnrichers += new NCEnStopWordsTokenEnricher(stemmer = enStemmer)
         tokEnrichers += new NCSwearWordsTokenEnricher(
             NCResourceReader.getPath("badfilter/swear_words.txt"),
-            new NCEnStemmer
+            enStemmer
         )
         tokEnrichers += new NCQuotesTokenEnricher
         tokEnrichers += new NCDictionaryTokenEnricher("moby/354984si.ngl")
@@ -260,7 +263,7 @@ class NCPipelineBuilder:
         lang.toUpperCase match
             case "EN" =>
                 setEnComponents()
-                entParsers += new NCSemanticEntityParser(new NCEnStemmer, mkEnOpenNLPTokenParser, macros, elms)
+                entParsers += new NCSemanticEntityParser(enStemmer, mkEnOpenNLPTokenParser, macros, elms)
             case _ => require(false, s"Unsupported language: $lang")
         this
 
@@ -326,10 +329,22 @@ class NCPipelineBuilder:
         lang.toUpperCase match
             case "EN" =>
                 setEnComponents()
-                this.entParsers += new NCSemanticEntityParser(new NCEnStemmer, mkEnOpenNLPTokenParser, mdlSrc)
+                this.entParsers += new NCSemanticEntityParser(enStemmer, mkEnOpenNLPTokenParser, mdlSrc)
             case _ => require(false, s"Unsupported language: $lang")
         this
 
+    /**
+      * Enables or disables parallel execution of entity parsers for each request. It should be enabled only
+      * if all entity parsers are side-effect free and independent of each other. Note that this method returns
+      * this instance for convenient call chaining.
+      *
+      * @param parEntParsers Parallel entity parsers execution flag.
+      * @see [[NCPipeline.isParallelEntityParsers]]
+      */
+    def withParallelEntityParsers(parEntParsers: Boolean): NCPipelineBuilder =
+        this.parEntParsers = parEntParsers
+        this
+
     /**
       * Builds new [[NCPipeline]] instance with previously provided components.
       */
@@ -346,3 +361,4 @@ class NCPipelineBuilder:
             override def getEntityValidators: List[NCEntityValidator] = entVals.toList
             override def getVariantFilters: List[NCVariantFilter] = varFilters.toList
             override def getEntityMappers: List[NCEntityMapper] = entMappers.toList
+            override def isParallelEntityParsers: Boolean = parEntParsers
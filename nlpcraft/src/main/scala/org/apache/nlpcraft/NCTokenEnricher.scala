@@ -41,3 +41,22 @@ trait NCTokenEnricher extends NCLifecycle:
       * @param toks Previously parsed tokens to enrich.
       */
     def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit
+
+    /**
+      * Gets names of the [[NCToken token]] properties this enricher requires, i.e. the properties that should be
+      * set by other token enrichers before this enricher is called. Default value is an empty set.
+      *
+      * @see [[getProducedTokenProperties]]
+      */
+    def getRequiredTokenProperties: Set[String] = Set.empty
+
+    /**
+      * Gets names of the [[NCToken token]] properties this enricher sets. Token enrichers with declared
+      * properties are ordered by their dependencies and independent ones are called in parallel. Enrichers which
+      * don't declare produced properties are called in their pipeline order without parallelism. Pipeline also
+      * checks on start that all required properties are produced by some of its token enrichers.
+      * Default value is an empty set.
+      *
+      * @see [[getRequiredTokenProperties]]
+      */
+    def getProducedTokenProperties: Set[String] = Set.empty
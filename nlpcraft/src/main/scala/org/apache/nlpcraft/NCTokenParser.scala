@@ -41,3 +41,12 @@ trait NCTokenParser:
       * @return List of split token. Can be empty but should never be `null`.
       */
     def tokenize(text: String): List[NCToken]
+
+    /**
+      * Gets names of the [[NCToken token]] properties this parser sets. They are taken into account when
+      * the pipeline checks on start that properties required by the token enrichers are produced.
+      * Default value is an empty set.
+      *
+      * @see [[NCTokenEnricher.getRequiredTokenProperties]]
+      */
+    def getProducedTokenProperties: Set[String] = Set.empty
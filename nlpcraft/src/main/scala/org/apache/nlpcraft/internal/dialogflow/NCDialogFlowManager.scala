@@ -31,9 +31,31 @@ import scala.collection.*
  */
 class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
     private final val flow = mutable.HashMap.empty[String, mutable.ArrayBuffer[NCDialogFlowItem]]
+    // Intent IDs of the dialog flow joined by space, built on demand and dropped when the user dialog flow changes.
+    private final val flowIds = mutable.HashMap.empty[String, String]
+    // Versions of the non-empty users dialog flows, changed on each dialog flow change. Empty dialog flow version is 0.
+    private final val vers = mutable.HashMap.empty[String, Long]
+    // Last assigned version, versions are not reused.
+    private var lastVer = 0L
 
     @volatile private var gc: Thread = _
 
+    /**
+      * Marks the user dialog flow as changed.
+      *
+      * @param usrId User ID.
+      */
+    private def changed(usrId: String): Unit =
+        require(Thread.holdsLock(flow))
+
+        flowIds -= usrId
+
+        if flow.contains(usrId) then
+            lastVer += 1
+            vers(usrId) = lastVer
+        else
+            vers -= usrId
+
     /**
       *  Gets next clearing time.
       */
@@ -47,7 +69,11 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
         val delKeys = mutable.ArrayBuffer.empty[String]
 
         for ((usrId, values) <- flow)
-            values --= values.filter(_.getRequest.getReceiveTimestamp < bound)
+            val expired = values.filter(_.getRequest.getReceiveTimestamp < bound)
+
+            if expired.nonEmpty then
+                values --= expired
+                changed(usrId)
 
             if values.nonEmpty then
                 val candidate = values.map(_.getRequest.getReceiveTimestamp).min + timeout
@@ -55,7 +81,9 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
                 else
                     delKeys += usrId
 
-        if delKeys.nonEmpty then flow --= delKeys
+        if delKeys.nonEmpty then
+            flow --= delKeys
+            delKeys.foreach(changed)
 
         next
 
@@ -97,7 +125,11 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
     def close(): Unit =
         NCUtils.stopThread(gc)
         gc = null
-        flow.clear()
+        flow.synchronized {
+            flow.clear()
+            flowIds.clear()
+            vers.clear()
+        }
 
     /**
       * Adds matched (winning) intent to the dialog flow.
@@ -111,6 +143,7 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
 
         flow.synchronized {
             flow.getOrElseUpdate(ctx.getRequest.getUserId, mutable.ArrayBuffer.empty[NCDialogFlowItem]).append(item)
+            changed(ctx.getRequest.getUserId)
             flow.notifyAll()
         }
 
@@ -130,6 +163,7 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
             if buf.nonEmpty then
                 buf.remove(buf.size - 1)
                 buf.append(item)
+                changed(ctx.getRequest.getUserId)
 
             flow.notifyAll()
         }
@@ -145,31 +179,70 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
             case Some(buf) => buf.toList
             case None => List.empty
 
+    /**
+      * Gets intent IDs of the dialog flow for given user ID, oldest first, joined by space. This is the string
+      * intent flow regular expressions are matched against. The same string instance is returned until the user
+      * dialog flow is changed.
+      *
+      * @param usrId User ID.
+      */
+    def getDialogFlowIntentIds(usrId: String): String = getVersionedDialogFlowIntentIds(usrId)._2
+
+    /**
+      * Gets dialog flow version and intent IDs for given user ID, both taken from the same dialog flow state.
+      *
+      * @param usrId User ID.
+      * @see [[getDialogFlowVersion]]
+      * @see [[getDialogFlowIntentIds]]
+      */
+    def getVersionedDialogFlowIntentIds(usrId: String): (Long, String) =
+        flow.synchronized {
+            val ids = flowIds.getOrElseUpdate(
+                usrId,
+                flow.get(usrId) match
+                    case Some(buf) => buf.map(_.getIntentMatch.getIntentId).mkString(" ")
+                    case None => ""
+            )
+
+            vers.getOrElse(usrId, 0L) -> ids
+        }
+
+    /**
+      * Gets dialog flow version for given user ID. Version is changed on each change of the user dialog flow and
+      * is never reused for the non-empty dialog flow, so the values computed for the dialog flow can be cached by its
+      * version. Empty dialog flow version is 0.
+      *
+      * @param usrId User ID.
+      */
+    def getDialogFlowVersion(usrId: String): Long = flow.synchronized { vers.getOrElse(usrId, 0L) }
+
     /**
       * Prints out ASCII table for current dialog flow.
       *
       * @param usrId User ID.
       */
     def ack(usrId: String): Unit =
-        val tbl = NCAsciiTable(
-            "#",
-            "Intent ID",
-            "Request ID",
-            "Text",
-            "Received"
-        )
-
-        getDialogFlow(usrId).zipWithIndex.foreach { (itm, idx) =>
-            tbl += (
-                idx + 1,
-                itm.getIntentMatch.getIntentId,
-                itm.getRequest.getRequestId,
-                itm.getRequest.getText,
-                DateFormat.getDateTimeInstance.format(new java.util.Date(itm.getRequest.getReceiveTimestamp))
+        if logger.underlying.isInfoEnabled then
+            val tbl = NCAsciiTable(
+                "#",
+                "Intent ID",
+                "Request ID",
+                "Text",
+                "Received"
             )
-        }
+            val fmt = DateFormat.getDateTimeInstance
+
+            getDialogFlow(usrId).zipWithIndex.foreach { (itm, idx) =>
+                tbl += (
+                    idx + 1,
+                    itm.getIntentMatch.getIntentId,
+                    itm.getRequest.getRequestId,
+                    itm.getRequest.getText,
+                    fmt.format(new java.util.Date(itm.getRequest.getReceiveTimestamp))
+                )
+            }
 
-        logger.info(s"""Current dialog flow (oldest first) for [mdlId=${cfg.getId}, usrId=$usrId]\n${tbl.toString()}""")
+            logger.info(s"""Current dialog flow (oldest first) for [mdlId=${cfg.getId}, usrId=$usrId]\n${tbl.toString()}""")
 
     /**
       * Clears dialog history for given user ID.
@@ -179,6 +252,7 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
     def clear(usrId: String): Unit =
         flow.synchronized {
             flow -= usrId
+            changed(usrId)
             flow.notifyAll()
         }
 
@@ -194,6 +268,7 @@ class NCDialogFlowManager(cfg: NCModelConfig) extends LazyLogging:
                 case Some(fu) =>
                     fu --= fu.filter(pred)
                     if fu.isEmpty then flow -= usrId
+                    changed(usrId)
                 case None => // No-op.
             flow.notifyAll()
         }
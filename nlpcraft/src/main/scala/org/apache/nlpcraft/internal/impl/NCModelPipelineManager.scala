@@ -25,14 +25,14 @@ import org.apache.nlpcraft.internal.dialogflow.NCDialogFlowManager
 import org.apache.nlpcraft.internal.impl.*
 import org.apache.nlpcraft.internal.intent.matcher.*
 import org.apache.nlpcraft.internal.util.*
+import org.apache.nlpcraft.nlp.stemmer.NCRequestStems
 
 import java.util.UUID
 import java.util.concurrent.*
 import java.util.concurrent.atomic.*
 import java.util.function.Predicate
+import scala.collection.mutable
 import scala.concurrent.ExecutionContext
-import scala.jdk.CollectionConverters.*
-
 
 /**
   *
@@ -42,6 +42,16 @@ import scala.jdk.CollectionConverters.*
   */
 case class NCPipelineData(request: NCRequest, variants: List[NCVariant], tokens: List[NCToken])
 
+/**
+  *
+  * @param txt
+  * @param data
+  * @param usrId
+  * @param ctrl Request control checked between pipeline stages.
+  */
+case class NCPipelineInput(txt: String, data: Map[String, Any], usrId: String, ctrl: NCRequestControl = NCRequestControl.NONE):
+    require(txt != null && usrId != null && ctrl != null)
+
 /**
   *
   * @param cfg
@@ -61,6 +71,73 @@ class NCModelPipelineManager(cfg: NCModelConfig, pipeline: NCPipeline) extends L
     private val allComps: Seq[NCLifecycle] =
         tokEnrichers ++ entEnrichers ++ entParsers ++ tokVals ++ entVals ++ entMappers ++ varFilters
 
+    NCTokenEnricherGraph.validate(tokParser, tokEnrichers, entParsers)
+
+    // Independent token enrichers of each level are called in parallel.
+    private val tokEnricherLevels = NCTokenEnricherGraph.mkLevels(tokEnrichers)
+
+    /**
+      * Processing state of the single request passed through the pipeline stages.
+      *
+      * @param req
+      * @param ctrl
+      */
+    private class RequestState(val req: NCRequest, val ctrl: NCRequestControl):
+        var toks: List[NCToken] = List.empty
+        var entities: List[NCEntity] = List.empty
+        var result: NCPipelineData = _
+        // Volatile fields are also accessed by the waiting thread in pipelined execution mode.
+        @volatile var error: Exception = _
+        @volatile var finished = false
+
+    private type Stage = RequestState => Unit
+
+    // Ordered pipeline stages, one stage per pipeline component.
+    private val stages: IndexedSeq[Stage] = mkStages()
+
+    // Stage pools for pipelined execution mode, empty if this mode is disabled.
+    private val stagePools: IndexedSeq[ExecutorService] =
+        val workers = cfg.getPipelineStageWorkers
+        val qSize = cfg.getPipelineStageQueueSize
+
+        require(workers >= 0, "Pipeline stage workers number cannot be negative.")
+        require(qSize > 0, "Pipeline stage queue size must be positive.")
+
+        if workers > 0 then
+            stages.indices.map(_ =>
+                new ThreadPoolExecutor(
+                    workers,
+                    workers,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue[Runnable](qSize),
+                    // Backpressure - the previous stage's worker waits when this stage's queue is full.
+                    (task: Runnable, exec: ThreadPoolExecutor) => enqueue(task, exec)
+                )
+            )
+        else
+            IndexedSeq.empty
+
+    /**
+      * Puts the rejected task into the full stage queue, waiting for the free space. Task is rejected only if
+      * the stage pool is shut down.
+      *
+      * @param task Task to put.
+      * @param exec Stage pool.
+      */
+    private def enqueue(task: Runnable, exec: ThreadPoolExecutor): Unit =
+        def reject() = throw new RejectedExecutionException("Pipeline is closed.")
+
+        if exec.isShutdown then reject()
+
+        try exec.getQueue.put(task)
+        catch case e: InterruptedException =>
+            Thread.currentThread().interrupt()
+            throw new RejectedExecutionException("Interrupted while waiting for pipeline stage queue.", e)
+
+        // Pool can be shut down while waiting, so its workers could already exit.
+        if exec.isShutdown && exec.getQueue.remove(task) then reject()
+
     /**
       * Processes pipeline components.
       *
@@ -92,33 +169,23 @@ class NCModelPipelineManager(cfg: NCModelConfig, pipeline: NCPipeline) extends L
 
     /**
       *
-      * @param txt
-      * @param data
-      * @param usrId
+      * @param in
       */
-    def prepare(txt: String, data: Map[String, Any], usrId: String): NCPipelineData =
-        require(txt != null && usrId != null)
-
-        /**
-          *
-          * @param ents
-          */
-        def newVariant(ents: List[NCEntity]): NCVariant =
-            new NCVariant:
-                override val getEntities: List[NCEntity] = ents
-
-        val req: NCRequest = new NCRequest:
-            override val getUserId: String = usrId
+    private def mkRequest(in: NCPipelineInput): NCRequest =
+        // Request holds the stems cache shared by the pipeline components.
+        new NCRequest with NCRequestStems:
+            override val getUserId: String = in.usrId
             override val getRequestId: String = UUID.randomUUID().toString
-            override val getText: String = txt
+            override val getText: String = in.txt
             override val getReceiveTimestamp: Long = System.currentTimeMillis()
-            override val getRequestData: Map[String, Any] = data
-
-        val toks = tokParser.tokenize(txt)
-
-        if toks.nonEmpty then
-            for (e <- tokEnrichers) e.enrich(req, cfg, toks)
+            override val getRequestData: Map[String, Any] = in.data
 
+    /**
+      *
+      * @param req
+      * @param toks
+      */
+    private def logTokens(req: NCRequest, toks: List[NCToken]): Unit =
         val tbl = NCAsciiTable("Text", "Start index", "End index", "Properties")
 
         for (t <- toks)
@@ -130,46 +197,40 @@ class NCModelPipelineManager(cfg: NCModelConfig, pipeline: NCPipeline) extends L
             )
         tbl.info(logger, s"Tokens for: ${req.getText}".?)
 
-        // NOTE: we run validators regardless of whether token list is empty.
-        for (v <- tokVals) v.validate(req, cfg, toks)
-
-        var entities: List[NCEntity] = List.empty
-
-        for (p <- entParsers) entities ++= p.parse(req, cfg, toks)
-
-        if entities.nonEmpty then
-            for (e <- entEnrichers) e.enrich(req, cfg, entities)
-
-        // NOTE: we run validators regardless of whether entity list is empty.
-        for (v <- entVals) v.validate(req, cfg, entities)
-
-        for (m <- entMappers)
-            entities = m.map(req, cfg, entities)
-            if entities == null then E("Entity mapper cannot return null values.")
-
-        val overlapEnts: Seq[Set[NCEntity]] =
-            toks.
-            // Looks at each token.
-            map(t => t.getIndex -> entities.filter(_.getTokens.contains(t))).
-            // Collects all overlapped entities.
-            map { case (_, ents) => if ents.sizeIs > 1 then ents.toSet else Set.empty }.filter(_.nonEmpty)
+    /**
+      *
+      * @param req
+      * @param entities
+      * @param ctrl
+      */
+    private def mkVariants(req: NCRequest, entities: List[NCEntity], ctrl: NCRequestControl): List[NCVariant] =
+        /**
+          *
+          * @param ents
+          */
+        def newVariant(ents: List[NCEntity]): NCVariant =
+            new NCVariant:
+                override val getEntities: List[NCEntity] = ents
 
         var variants: List[NCVariant] =
-            if overlapEnts.nonEmpty then
-                NCModelPipelineHelper.
-                    findCombinations(overlapEnts.map(_.asJava).asJava, pool).asScala.
-                    map(_.asScala).map(delComb =>
-                        val delSet = delComb.toSet
-                        newVariant(entities.filter(!delSet.contains(_)))
-                    ).toList
-            else
-                List(newVariant(entities))
+            NCVariantsGenerator.
+                generate(entities.toIndexedSeq, _.getTokens.map(_.getIndex), cfg.getMaxVariants, () => ctrl.check()).
+                map(newVariant)
 
         variants = varFilters.foldRight(variants)((filter, vars) => filter.filter(req, cfg, vars))
 
         // Skips empty variants.
         val vrns = variants.filter(_.getEntities.nonEmpty)
 
+        if NCRequestTrace.isInfo(logger, cfg, req) then logVariants(vrns)
+
+        vrns
+
+    /**
+      *
+      * @param vrns
+      */
+    private def logVariants(vrns: List[NCVariant]): Unit =
         for (v, i) <- vrns.zipWithIndex do
             val tbl = NCAsciiTable("EntityType", "Tokens", "Tokens Position", "Properties")
 
@@ -183,7 +244,134 @@ class NCModelPipelineManager(cfg: NCModelConfig, pipeline: NCPipeline) extends L
                 )
             tbl.info(logger, s"Variant: ${i + 1} (${vrns.size})".?)
 
-        NCPipelineData(req, vrns, toks)
+    /**
+      *
+      */
+    private def mkStages(): IndexedSeq[Stage] =
+        val buf = mutable.ArrayBuffer.empty[Stage]
+
+        buf += (s => s.toks = tokParser.tokenize(s.req.getText))
+
+        for (lvl <- tokEnricherLevels)
+            buf += (s =>
+                if s.toks.nonEmpty then
+                    if lvl.sizeIs > 1 then NCUtils.execParResults(lvl.map(e => () => e.enrich(s.req, cfg, s.toks)))(pool)
+                    else lvl.head.enrich(s.req, cfg, s.toks)
+            )
+
+        buf += (s => if NCRequestTrace.isInfo(logger, cfg, s.req) then logTokens(s.req, s.toks))
+
+        // NOTE: we run validators regardless of whether token list is empty.
+        for (v <- tokVals) buf += (s => v.validate(s.req, cfg, s.toks))
+
+        if pipeline.isParallelEntityParsers && entParsers.sizeIs > 1 then
+            // Results are merged in the parsers order, regardless of the order they are finished.
+            buf += (s => s.entities = s.entities ++ NCUtils.execParResults(entParsers.map(p => () => p.parse(s.req, cfg, s.toks)))(pool).flatten)
+        else
+            for (p <- entParsers) buf += (s => s.entities = s.entities ++ p.parse(s.req, cfg, s.toks))
+
+        for (e <- entEnrichers) buf += (s => if s.entities.nonEmpty then e.enrich(s.req, cfg, s.entities))
+
+        // NOTE: we run validators regardless of whether entity list is empty.
+        for (v <- entVals) buf += (s => v.validate(s.req, cfg, s.entities))
+
+        for (m <- entMappers)
+            buf += (s =>
+                s.entities = m.map(s.req, cfg, s.entities)
+                if s.entities == null then E("Entity mapper cannot return null values.")
+            )
+
+        buf += (s => s.result = NCPipelineData(s.req, mkVariants(s.req, s.entities, s.ctrl), s.toks))
+
+        buf.toIndexedSeq
+
+    /**
+      * Applies given stage to the request if it is not failed yet.
+      *
+      * @param stage Stage to apply.
+      * @param s Request state.
+      */
+    private def runStage(stage: Stage, s: RequestState): Unit =
+        if s.error == null then
+            s.ctrl.resume()
+
+            try
+                s.ctrl.check()
+                stage(s)
+            catch case e: Exception => s.error = e
+            finally s.ctrl.suspend()
+
+    /**
+      * Submits the request to the given stage pool. The stage task only runs its stage and submits the request
+      * to the next stage pool, it never runs the next stage itself, so each stage is always processed by its own
+      * pool. If the stage pool rejects the request (i.e. pipeline is closed), the request is failed.
+      *
+      * @param s Request state.
+      * @param idx Stage index.
+      * @param done Latch to count down when the request passed all stages or failed.
+      */
+    private def submit(s: RequestState, idx: Int, done: CountDownLatch): Unit =
+        def finish(): Unit =
+            s.finished = true
+            done.countDown()
+
+        if idx == stages.size then finish()
+        else
+            try
+                stagePools(idx).execute(() =>
+                    try runStage(stages(idx), s)
+                    finally submit(s, idx + 1, done)
+                )
+            catch case e: RejectedExecutionException =>
+                if s.error == null then s.error = e
+                finish()
+
+    /**
+      *
+      * @param txt
+      * @param data
+      * @param usrId
+      * @param ctrl Request control checked between pipeline stages.
+      */
+    def prepare(txt: String, data: Map[String, Any], usrId: String, ctrl: NCRequestControl = NCRequestControl.NONE): NCPipelineData =
+        require(txt != null && usrId != null && ctrl != null)
+
+        prepareBatch(Seq(NCPipelineInput(txt, data, usrId, ctrl))).head match
+            case Right(res) => res
+            case Left(e) => throw e
+
+    /**
+      * Passes given requests through the pipeline stage by stage, i.e. each pipeline component processes
+      * all requests before the next component is called. Failure of one request doesn't stop processing
+      * of other ones.
+      *
+      * In pipelined execution mode (see [[NCModelConfig.getPipelineStageWorkers]]) each stage is processed by
+      * its own worker pool, so different requests can be processed by different stages at the same time.
+      *
+      * @param ins Requests inputs.
+      * @return Pipeline results or errors in the order of the given inputs.
+      */
+    def prepareBatch(ins: Seq[NCPipelineInput]): List[Either[Exception, NCPipelineData]] =
+        require(ins != null)
+
+        val states = ins.map(in => new RequestState(mkRequest(in), in.ctrl))
+
+        if stagePools.isEmpty then
+            for (stage <- stages; s <- states) runStage(stage, s)
+        else
+            val done = new CountDownLatch(states.size)
+
+            for (s <- states) submit(s, 0, done)
+
+            // Batch requests timeouts are counted only while they are processed (see `NCRequestControl.resume()`),
+            // so waiting is limited by the sum of the requests remaining times, if all requests have timeout.
+            val wait = states.map(_.ctrl.getRemaining).foldLeft(0L)((acc, t) => if acc > Long.MaxValue - t then Long.MaxValue else acc + t)
+
+            if !done.await(wait, TimeUnit.MILLISECONDS) then
+                // Not finished requests are failed, their remaining stages are skipped.
+                for (s <- states if !s.finished) s.error = s.ctrl.mkTimeoutError()
+
+        states.map(s => if s.error != null then Left(s.error) else Right(s.result)).toList
 
     def start(): Unit = processComponents(_.onStart(cfg), "started")
 
@@ -191,5 +379,7 @@ class NCModelPipelineManager(cfg: NCModelConfig, pipeline: NCPipeline) extends L
       *
       */
     def close(): Unit =
+        // Pools are stopped in the stages order, so in-flight requests can pass all remaining stages.
+        stagePools.foreach(NCUtils.shutdownPool)
         processComponents(_.onStop(cfg), "stopped")
         NCUtils.shutdownPool(pool)
@@ -398,11 +398,19 @@ object NCModelScanner extends LazyLogging:
 
     /**
       *
+      * @param mdl
       */
-    def scan(mdl: NCModel): Seq[NCModelIntent] =
+    def scan(mdl: NCModel): Seq[NCModelIntent] = scan(mdl, new NCIDLPatternCache(mdl.getConfig.getRegexCacheSize))
+
+    /**
+      *
+      * @param mdl
+      * @param patterns
+      */
+    def scan(mdl: NCModel, patterns: NCIDLPatternCache): Seq[NCModelIntent] =
         require(mdl != null)
 
-        var compiler = new NCIDLCompiler(mdl.getConfig)
+        var compiler = new NCIDLCompiler(mdl.getConfig, patterns, mdl.getIntentFunctions)
 
         // Overrides current compiler with new intents but without any cache (imports and fragments)
         def callNoCache[T](f: () => T): T =
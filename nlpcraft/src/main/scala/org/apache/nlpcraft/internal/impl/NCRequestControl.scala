@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.NCTimeoutRejection
+
+import java.util.concurrent.{CancellationException, TimeUnit}
+
+/**
+  * Cooperative control for a single in-flight request. It is checked by the pipeline, the variants generator
+  * and the intent solver between processing steps.
+  *
+  * By default the request timeout is counted from this control creation. Control created in the suspended state
+  * counts only the time between [[resume()]] and [[suspend()]] calls, i.e. the time when the request is actually
+  * processed. It is used for the batch requests which wait for each other between processing steps.
+  *
+  * @param isCancelled Cancellation flag supplier.
+  * @param timeout Request timeout in millis. `0` means no timeout.
+  * @param suspended Whether the control is created in the suspended state.
+  */
+case class NCRequestControl(isCancelled: () => Boolean, timeout: Long = 0, suspended: Boolean = false):
+    require(isCancelled != null)
+    require(timeout >= 0, "Request timeout cannot be negative.")
+
+    private val timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout)
+    // Processing time spent before the last resume and the last resume time (or `-1` if suspended).
+    private var spent = 0L
+    private var resumed = if suspended then -1L else System.nanoTime()
+
+    /**
+      * Gets the processing time in nanos.
+      */
+    private def elapsed: Long = synchronized { if resumed < 0 then spent else spent + System.nanoTime() - resumed }
+
+    /**
+      * Starts counting the processing time, if the control was created in the suspended state.
+      */
+    def resume(): Unit = if suspended then synchronized { if resumed < 0 then resumed = System.nanoTime() }
+
+    /**
+      * Stops counting the processing time, if the control was created in the suspended state.
+      */
+    def suspend(): Unit =
+        if suspended then synchronized {
+            if resumed >= 0 then
+                spent += System.nanoTime() - resumed
+                resumed = -1
+        }
+
+    /**
+      * Throws [[CancellationException]] if the request was cancelled or [[NCTimeoutRejection]] if the
+      * request timeout is exceeded.
+      */
+    def check(): Unit =
+        if isCancelled() then throw new CancellationException("Request processing was cancelled.")
+        if timeoutNanos > 0 && elapsed > timeoutNanos then throw mkTimeoutError()
+
+    /**
+      * Gets remaining time in millis before the request timeout, or `Long.MaxValue` if the request doesn't
+      * have timeout.
+      */
+    def getRemaining: Long =
+        if timeoutNanos == 0 then Long.MaxValue
+        else Math.max(0, TimeUnit.NANOSECONDS.toMillis(timeoutNanos - elapsed))
+
+    /**
+      * Creates timeout error for this request.
+      */
+    def mkTimeoutError(): NCTimeoutRejection = new NCTimeoutRejection(s"Request processing timed out [timeout=${timeout}ms]")
+
+/**
+  *
+  */
+object NCRequestControl:
+    /**
+      * Control for requests that cannot be cancelled and don't have timeout.
+      */
+    val NONE: NCRequestControl = NCRequestControl(() => false)
+
+    /**
+      * Creates control for requests that cannot be cancelled with given timeout.
+      *
+      * @param timeout Request timeout in millis. `0` means no timeout.
+      */
+    def apply(timeout: Long): NCRequestControl = NCRequestControl(() => false, timeout)
+
+    /**
+      * Creates control for the batch request that cannot be cancelled with given timeout. Its timeout is counted
+      * only while the request is processed (see [[NCRequestControl.resume()]]).
+      *
+      * @param timeout Request timeout in millis. `0` means no timeout.
+      */
+    def mkBatch(timeout: Long): NCRequestControl = NCRequestControl(() => false, timeout, suspended = true)
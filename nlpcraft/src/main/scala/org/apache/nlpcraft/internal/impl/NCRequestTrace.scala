@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import com.typesafe.scalalogging.Logger
+import org.apache.nlpcraft.*
+
+/**
+  * Guard for the request trace output, i.e. tokens and variants tables, intent matches tables and dialog flow.
+  * Trace output should be built only if this guard allows it for the given request.
+  */
+object NCRequestTrace:
+    private final val SCALE = 10000
+
+    /**
+      * Checks whether given request is selected for tracing according to the model trace sample rate.
+      * Decision is based on the request ID, so it is the same for all the request processing steps.
+      *
+      * @param cfg Model configuration.
+      * @param req Request.
+      * @see [[NCModelConfig.getTraceSampleRate]]
+      */
+    def isSampled(cfg: NCModelConfig, req: NCRequest): Boolean =
+        val rate = cfg.getTraceSampleRate
+
+        require(rate >= 0.0 && rate <= 1.0, s"Trace sample rate must be in [0, 1] range: $rate")
+
+        rate >= 1.0 || rate > 0.0 && (req.getRequestId.hashCode & Int.MaxValue) % SCALE < rate * SCALE
+
+    /**
+      * Checks whether INFO level trace output should be built for given request.
+      *
+      * @param logger Logger.
+      * @param cfg Model configuration.
+      * @param req Request.
+      */
+    def isInfo(logger: Logger, cfg: NCModelConfig, req: NCRequest): Boolean =
+        logger.underlying.isInfoEnabled && isSampled(cfg, req)
+
+    /**
+      * Checks whether DEBUG level trace output should be built for given request.
+      *
+      * @param logger Logger.
+      * @param cfg Model configuration.
+      * @param req Request.
+      */
+    def isDebug(logger: Logger, cfg: NCModelConfig, req: NCRequest): Boolean =
+        logger.underlying.isDebugEnabled && isSampled(cfg, req)
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import com.typesafe.scalalogging.LazyLogging
+import org.apache.nlpcraft.*
+
+import scala.collection.mutable
+
+/**
+  * Dependencies of the token enrichers built from their declared required and produced token properties.
+  */
+object NCTokenEnricherGraph extends LazyLogging:
+    /**
+      *
+      * @param e
+      */
+    private def getRequired(e: NCTokenEnricher): Set[String] =
+        val props = e.getRequiredTokenProperties
+        require(props != null, s"Required token properties cannot be null: ${e.getClass.getName}")
+        props
+
+    /**
+      *
+      * @param e
+      */
+    private def getProduced(e: NCTokenEnricher): Set[String] =
+        val props = e.getProducedTokenProperties
+        require(props != null, s"Produced token properties cannot be null: ${e.getClass.getName}")
+        props
+
+    /**
+      * Splits given token enrichers into the levels, i.e. groups of the consecutive enrichers which don't depend on
+      * each other, so they can be called in parallel. Levels are called in the pipeline order, so the enrichers
+      * order is never changed. Enricher depends on the enricher defined before it if:
+      *  - it requires the property produced by that enricher, or
+      *  - both of them produce the same property, or
+      *  - one of them doesn't declare produced properties.
+      *
+      * @param enrichers Token enrichers in the pipeline order.
+      * @return Levels of the enrichers. Enrichers of each level are in the pipeline order.
+      */
+    def mkLevels(enrichers: Seq[NCTokenEnricher]): Seq[Seq[NCTokenEnricher]] =
+        val reqs = enrichers.map(getRequired)
+        val prods = enrichers.map(getProduced)
+
+        def dependsOn(j: Int, i: Int): Boolean =
+            reqs(j).exists(prods(i).contains) || prods(i).isEmpty || prods(j).isEmpty || prods(j).exists(prods(i).contains)
+
+        val levels = mutable.ArrayBuffer.empty[mutable.ArrayBuffer[Int]]
+
+        for (j <- enrichers.indices)
+            if levels.isEmpty || levels.last.exists(dependsOn(j, _)) then levels += mutable.ArrayBuffer(j)
+            else levels.last += j
+
+        levels.map(_.map(enrichers).toSeq).toSeq
+
+    /**
+      * Checks that all token properties required by the token enrichers and the entity parsers are produced by
+      * the token parser or the token enrichers. Property required by the token enricher should be produced by
+      * the token parser or by the enricher defined before it, otherwise it is an error. Missed property used by
+      * the entity parser is reported as a warning. Property which can be produced by the enricher that doesn't
+      * declare its produced properties is not reported. If the token parser doesn't declare its produced
+      * properties, missed properties required by the token enrichers are reported as warnings too, because the token
+      * parser can produce them.
+      *
+      * @param tokParser Token parser.
+      * @param enrichers Token enrichers.
+      * @param parsers Entity parsers.
+      */
+    def validate(tokParser: NCTokenParser, enrichers: Seq[NCTokenEnricher], parsers: Seq[NCEntityParser]): Unit =
+        val parserProds = tokParser.getProducedTokenProperties.?.getOrElse(Set.empty)
+        val prods = enrichers.map(getProduced)
+
+        // Whether the property can be produced by the token parser or by the enrichers in given range.
+        def isProduced(p: String, from: Int, until: Int): Boolean =
+            parserProds.contains(p) || (from until until).exists(i => prods(i).isEmpty || prods(i).contains(p))
+
+        for ((e, j) <- enrichers.zipWithIndex; p <- getRequired(e) if !isProduced(p, 0, j))
+            val name = e.getClass.getName
+
+            if parserProds.isEmpty then
+                logger.warn(
+                    s"Token property '$p' required by '$name' is not declared as produced by the token enrichers " +
+                    s"defined before it, token parser '${tokParser.getClass.getName}' doesn't declare its produced properties."
+                )
+            else if isProduced(p, j + 1, enrichers.size) then
+                E(s"Token property '$p' required by '$name' is produced by the token enricher defined after it.")
+            else
+                E(s"Token property '$p' required by '$name' is not produced by the token parser or any token enricher.")
+
+        for (p <- parsers; props = p.getRequiredTokenProperties if props != null; prop <- props if !isProduced(prop, 0, enrichers.size))
+            logger.warn(s"Token property '$prop' used by '${p.getClass.getName}' is not produced by the token parser or any token enricher.")
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import com.typesafe.scalalogging.LazyLogging
+
+import scala.collection.immutable.BitSet
+import scala.collection.mutable
+
+/**
+  * Variants generator. Each variant is a maximal set of the items which don't overlap with each other, i.e. don't
+  * share any key (token index). Items are split into the independent groups of overlapping items, the maximal
+  * non-overlapping sets are enumerated for each group (Bron-Kerbosch algorithm) and the variants are built as
+  * their cartesian product. Unlike the power set scan, the cost depends on the number of the result variants
+  * and not on the total number of overlapping items. Variants are ordered by the number of the keys covered by
+  * their items, so if the variants number is limited, the variants which cover more keys are kept.
+  */
+object NCVariantsGenerator extends LazyLogging:
+    /**
+      * Generates variants for given items.
+      *
+      * @param items Items.
+      * @param keys Function that gets item keys. Items overlap if they have at least one common key.
+      * @param max Maximum number of the variants to generate.
+      * @param check Function periodically called during generation, it can interrupt generation by exception.
+      * @return Variants ordered by the number of the covered keys (the best first), each variant contains items
+      *     in the order of the given items.
+      */
+    def generate[T](items: IndexedSeq[T], keys: T => Iterable[Int], max: Int, check: () => Unit = () => ()): List[List[T]] =
+        require(items != null && keys != null && check != null)
+        require(max > 0, "Maximum number of the variants must be positive.")
+
+        val n = items.size
+        val itemKeys = items.map(keys(_).toSeq)
+        val byKey = mutable.HashMap.empty[Int, mutable.ArrayBuffer[Int]]
+
+        for (i <- 0 until n; k <- itemKeys(i)) byKey.getOrElseUpdate(k, mutable.ArrayBuffer.empty) += i
+
+        // Overlapping items for each item.
+        val adj = Array.fill(n)(BitSet.empty)
+
+        for (idxs <- byKey.values if idxs.sizeIs > 1; i <- idxs; j <- idxs if i != j) adj(i) += j
+
+        // Number of the keys covered by the items set.
+        def score(set: BitSet): Int = set.foldLeft(0)((acc, i) => acc + itemKeys(i).size)
+
+        var cnt = 1L
+        var res = IndexedSeq(BitSet.empty -> 0)
+
+        // One extra set is requested to detect truncation.
+        val limit = if max < Int.MaxValue then max + 1 else max
+
+        for (grp <- mkGroups(adj))
+            val sets = findMaxSets(grp, adj, limit, check).map(s => s -> score(s)).sortBy(-_._2).toIndexedSeq
+
+            cnt = Math.min(cnt * sets.size, max + 1L)
+            res = mergeBest(res, sets, max)
+
+        if cnt > max then logger.warn(s"Too many variants, only best $max are used (see 'NCModelConfig.getMaxVariants').")
+
+        res.map { (set, _) => (0 until n).filter(i => adj(i).isEmpty || set.contains(i)).map(items).toList }.toList
+
+    /**
+      * Combines each set of the first sequence with each set of the second one and keeps the best combinations,
+      * i.e. the ones with the highest scores. Both sequences should be ordered by the score, the best first.
+      *
+      * @param a Sets with their scores.
+      * @param b Sets with their scores.
+      * @param max Maximum number of the combinations to keep.
+      * @return Combinations with their scores ordered by the score, the best first.
+      */
+    private def mergeBest(a: IndexedSeq[(BitSet, Int)], b: IndexedSeq[(BitSet, Int)], max: Int): IndexedSeq[(BitSet, Int)] =
+        // Candidates (score, index in `a`, index in `b`), ties are ordered by the indexes.
+        val q = mutable.PriorityQueue.empty[(Int, Int, Int)](Ordering.by[(Int, Int, Int), (Int, Int, Int)] { case (s, i, j) => (s, -i, -j) })
+        val seen = mutable.HashSet.empty[(Int, Int)]
+        val res = mutable.ArrayBuffer.empty[(BitSet, Int)]
+
+        def add(i: Int, j: Int): Unit = if i < a.size && j < b.size && seen.add(i -> j) then q += ((a(i)._2 + b(j)._2, i, j))
+
+        add(0, 0)
+
+        // Each next best combination is a neighbour of one of the already taken ones.
+        while q.nonEmpty && res.sizeIs < max do
+            val (s, i, j) = q.dequeue()
+
+            res += (a(i)._1 | b(j)._1) -> s
+
+            add(i + 1, j)
+            add(i, j + 1)
+
+        res.toIndexedSeq
+
+    /**
+      * Splits overlapping items into the connected groups.
+      *
+      * @param adj Overlapping items for each item.
+      */
+    private def mkGroups(adj: Array[BitSet]): Seq[BitSet] =
+        val seen = mutable.BitSet.empty
+        val grps = mutable.ArrayBuffer.empty[BitSet]
+
+        for (i <- adj.indices if adj(i).nonEmpty && !seen.contains(i))
+            var grp = BitSet(i)
+            var front = adj(i)
+
+            while front.nonEmpty do
+                grp |= front
+                front = front.foldLeft(BitSet.empty)((acc, j) => acc | adj(j)) &~ grp
+
+            seen ++= grp
+            grps += grp
+
+        grps.toSeq
+
+    /**
+      * Enumerates maximal sets of non-overlapping items of the group.
+      *
+      * @param grp Group items.
+      * @param adj Overlapping items for each item.
+      * @param limit Maximum number of sets to find.
+      * @param check Function periodically called during search.
+      */
+    private def findMaxSets(grp: BitSet, adj: Array[BitSet], limit: Int, check: () => Unit): List[BitSet] =
+        val res = mutable.ArrayBuffer.empty[BitSet]
+        val compat = grp.iterator.map(i => i -> ((grp &~ adj(i)) - i)).toMap
+        var calls = 0
+
+        // Bron-Kerbosch with pivoting on the graph of compatible (non-overlapping) items.
+        def find(r: BitSet, p: BitSet, x: BitSet): Unit =
+            calls += 1
+            if (calls & 0xFF) == 0 then check()
+
+            if res.sizeIs < limit then
+                if p.isEmpty && x.isEmpty then
+                    res += r
+                else
+                    val pivot = (p | x).maxBy(u => (p & compat(u)).size)
+                    var pp = p
+                    var xx = x
+
+                    for (v <- p &~ compat(pivot))
+                        find(r + v, pp & compat(v), xx & compat(v))
+
+                        pp -= v
+                        xx += v
+
+        find(BitSet.empty, grp, BitSet.empty)
+
+        res.toList
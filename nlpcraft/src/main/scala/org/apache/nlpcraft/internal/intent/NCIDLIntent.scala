@@ -52,4 +52,8 @@ case class NCIDLIntent(
         case Some(r) => Pattern.compile(r).?
         case None => None
 
+    // Entity types required by mandatory (non-conversation) terms, variant should contain at least one type of each set.
+    lazy val requiredEntTypes: Seq[Set[String]] =
+        terms.filter(t => t.min > 0 && !t.conv).flatMap(_.entTypes).distinct
+
     override def toString: String = idl
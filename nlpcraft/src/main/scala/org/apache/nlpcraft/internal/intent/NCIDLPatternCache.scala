@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.intent
+
+import org.apache.nlpcraft.internal.util.NCLruCache
+
+import java.util.concurrent.atomic.LongAdder
+import java.util.regex.Pattern
+
+/**
+  * Bounded LRU cache of the compiled regular expressions used by IDL functions with non-constant patterns.
+  * Cache is shared by all intents of the model client and it is thread-safe.
+  *
+  * @param maxSize Maximum number of the cached patterns.
+  */
+class NCIDLPatternCache(maxSize: Int):
+    require(maxSize >= 0, "Regex cache size cannot be negative.")
+
+    private val hits = new LongAdder()
+    private val misses = new LongAdder()
+
+    // Lookups don't take locks, so the cache doesn't serialize the predicates evaluated in parallel.
+    private val cache = new NCLruCache[String, Pattern](maxSize)
+
+    /**
+      * Gets compiled pattern for given regular expression.
+      *
+      * @param regex Regular expression.
+      */
+    def get(regex: String): Pattern =
+        val p = cache.get(regex)
+
+        if p != null then
+            hits.increment()
+            p
+        else
+            misses.increment()
+
+            val p = Pattern.compile(regex)
+            cache.put(regex, p)
+            p
+
+    /**
+      * Gets number of the cache hits.
+      */
+    def getHits: Long = hits.sum()
+
+    /**
+      * Gets number of the cache misses.
+      */
+    def getMisses: Long = misses.sum()
+
+    /**
+      * Gets number of the cached patterns.
+      */
+    def size: Int = cache.size
+
+    override def toString: String = s"IDL regex cache [size=$size, hits=$getHits, misses=$getMisses]"
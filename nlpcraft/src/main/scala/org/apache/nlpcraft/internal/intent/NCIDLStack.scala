@@ -31,22 +31,27 @@ case class NCIDLStackItem (
   *
   */
 object NCIDLStackItem {
-    def apply(v: Boolean, f: Int): NCIDLStackItem = new NCIDLStackItem(Boolean.box(v), f)
+    // Shared boolean items for the most frequent entities usage counts (predicates results).
+    private final val BOOLS = Array.tabulate(2, 4)((b, f) => new NCIDLStackItem(Boolean.box(b == 1), f))
+
+    def apply(v: Boolean, f: Int): NCIDLStackItem =
+        if f >= 0 && f < 4 then BOOLS(if v then 1 else 0)(f) else new NCIDLStackItem(Boolean.box(v), f)
     def apply(v: Long, f: Int): NCIDLStackItem = new NCIDLStackItem(Long.box(v), f)
     def apply(v: Double, f: Int): NCIDLStackItem = new NCIDLStackItem(Double.box(v), f)
 }
 
 /**
-  *
+  * Compiled IDL expression node. Nodes are built once at compile time and evaluated for each entity.
   */
-trait NCIDLStackType extends (() => NCIDLStackItem)
+trait NCIDLStackType extends ((NCIDLEntity, NCIDLContext) => NCIDLStackItem)
 
 /**
-  *
+  * Compile time stack. IDL instructions are executed on this stack only once, during compilation,
+  * and combine the expression nodes into the tree. Only the root node is evaluated at runtime.
   */
 class NCIDLStack extends mutable.Stack[NCIDLStackType]:
     /**
       * Special marker for stack frames.
       */
-    final val PLIST_MARKER: NCIDLStackType = () => { NCIDLStackItem(null, 0) }
+    final val PLIST_MARKER: NCIDLStackType = (_, _) => { NCIDLStackItem(null, 0) }
 
@@ -30,6 +30,9 @@ import org.apache.nlpcraft.*
   * @param max Max quantifier.
   * @param conv Whether or not this term support conversation context.
   * @param fragMeta Fragment metadata, if any.
+  * @param entTypes Entity types which this term can match, if they can be defined from term predicate.
+  * @param predKey Key of the term predicate (and its declarations) results, if they depend only on the entity and
+  *     the request. Terms with the same key have the same predicate results, so they can be shared within the request.
   */
 case class NCIDLTerm(
     idl: String,
@@ -39,7 +42,9 @@ case class NCIDLTerm(
     min: Int,
     max: Int,
     conv: Boolean,
-    fragMeta: Map[String, Any] = Map.empty
+    fragMeta: Map[String, Any] = Map.empty,
+    entTypes: Option[Set[String]] = None,
+    predKey: Option[String] = None
 ):
     require(pred != null)
     require(min >= 0 && max >= min)
@@ -57,7 +62,9 @@ case class NCIDLTerm(
             min,
             max,
             conv,
-            meta
+            meta,
+            entTypes,
+            predKey
         )
 
     override def toString: String = idl
\ No newline at end of file
@@ -25,13 +25,14 @@ import org.apache.nlpcraft.*
 import org.apache.nlpcraft.internal.antlr4.NCCompilerUtils
 import org.apache.nlpcraft.internal.intent.compiler.antlr4.{NCIDLBaseListener, NCIDLLexer, NCIDLParser as IDP}
 import org.apache.nlpcraft.internal.intent.*
-import org.apache.nlpcraft.internal.intent.NCIDLStackItem as Z
+import org.apache.nlpcraft.internal.intent.compiler.NCIDLOptimizer.*
 import org.apache.nlpcraft.internal.util.NCUtils
 
 import java.io.*
 import java.net.*
 import java.util.Optional
 import java.util.regex.*
+import scala.annotation.tailrec
 import scala.collection.mutable
 
 /**
@@ -47,13 +48,42 @@ case class NCIDLFragment(id: String, terms: List[NCIDLTerm]):
 /**
   *
   * @param cfg
+  * @param patternCache Cache of the regular expressions with non-constant patterns.
+  * @param funs Model custom functions by their names.
   */
-class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneable[NCIDLCompiler]:
+class NCIDLCompiler(
+    cfg: NCModelConfig, patternCache: NCIDLPatternCache, funs: Map[String, NCIntentFunction]
+) extends LazyLogging with mutable.Cloneable[NCIDLCompiler]:
     private val intents = mutable.HashMap.empty[String, Set[NCIDLIntent]]
 
     // Compiler caches.
     private val fragCache = mutable.HashMap.empty[String, NCIDLFragment]
     private val importCache = mutable.HashSet.empty[String]
+    private val customFuns = NCIDLFunctionRegistry.mkCustom(funs)
+
+    /**
+      * Creates compiler with its own cache of the regular expressions.
+      *
+      * @param cfg
+      * @param funs Model custom functions by their names.
+      */
+    def this(cfg: NCModelConfig, funs: Map[String, NCIntentFunction]) =
+        this(cfg, new NCIDLPatternCache(cfg.getRegexCacheSize), funs)
+
+    /**
+      * Creates compiler without custom functions.
+      *
+      * @param cfg
+      * @param patternCache Cache of the regular expressions with non-constant patterns.
+      */
+    def this(cfg: NCModelConfig, patternCache: NCIDLPatternCache) = this(cfg, patternCache, Map.empty)
+
+    /**
+      * Creates compiler without custom functions and with its own cache of the regular expressions.
+      *
+      * @param cfg
+      */
+    def this(cfg: NCModelConfig) = this(cfg, Map.empty[String, NCIntentFunction])
 
     /**
       *
@@ -88,14 +118,31 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
         private var min = 1
         private var max = 1
 
-        // List of instructions for the current expression.
-        private val expr = mutable.Buffer.empty[SI]
+        // Stack of the current expression, instructions are executed as soon as they are parsed.
+        private val stack = new S()
+
+        // Optimizer state for the current expression.
+        private var exprRoot: IDP.ExprContext = _
+        private var exprTexts: Map[String, Int] = Map.empty
+        private val exprKinds = mutable.HashMap.empty[IDP.ExprContext, Kind]
+        private val exprShared = mutable.HashMap.empty[String, ST]
+        private val varKinds = mutable.HashMap.empty[String, Kind]
 
         /**
           *
           */
         def getCompiledIntents: Set[NCIDLIntent] = intents.toSet
 
+        override def getPatternCache: NCIDLPatternCache = patternCache
+
+        override def isConstParam(argNum: Int)(implicit ctx: PRC): Boolean =
+            ctx match
+                case x: IDP.CallExprContext =>
+                    getParams(x.paramList()).lift(argNum - 1) match
+                        case Some(p) => getKind(p, varKinds.getOrElse(_, Kind.VOLATILE), exprKinds) == Kind.CONST
+                        case None => false
+                case _ => false
+
         /**
           *
           * @param json
@@ -105,13 +152,72 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
             try NCUtils.jsonToScalaMap(json)
             catch case e: Exception => SE(s"Invalid JSON (${e.getMessage})")(ctx)
 
-        override def exitUnaryExpr(ctx: IDP.UnaryExprContext): Unit = expr += parseUnaryExpr(ctx.MINUS(), ctx.NOT())(ctx)
-        override def exitMultDivModExpr(ctx: IDP.MultDivModExprContext): Unit = expr += parseMultDivModExpr(ctx.MULT(), ctx.MOD(), ctx.DIV())(ctx)
-        override def exitPlusMinusExpr(ctx: IDP.PlusMinusExprContext): Unit = expr += parsePlusMinusExpr(ctx.PLUS(), ctx.MINUS())(ctx)
-        override def exitCompExpr(ctx: IDP.CompExprContext): Unit = expr += parseCompExpr(ctx.LT(), ctx.GT(), ctx.LTEQ(), ctx.GTEQ())(ctx)
-        override def exitAndOrExpr(ctx: IDP.AndOrExprContext): Unit = expr += parseAndOrExpr(ctx.AND, ctx.OR())(ctx)
-        override def exitEqNeqExpr(ctx: IDP.EqNeqExprContext): Unit = expr += parseEqNeqExpr(ctx.EQ, ctx.NEQ())(ctx)
-        override def exitAtom(ctx: IDP.AtomContext): Unit = expr += parseAtom(ctx.getText)(ctx)
+        /**
+          * Executes the instruction of given expression and optimizes the result.
+          *
+          * @param instr Expression instruction.
+          * @param ctx Expression.
+          */
+        private def addExpr(instr: SI)(ctx: IDP.ExprContext): Unit =
+            instr(stack)
+            optimize(ctx)
+
+        /**
+          * Optimizes the expression on the top of the stack (see [[NCIDLOptimizer]]).
+          *
+          * @param ctx Expression.
+          */
+        private def optimize(ctx: IDP.ExprContext): Unit =
+            @tailrec
+            def getRoot(e: IDP.ExprContext): IDP.ExprContext = getParent(e) match
+                case Some(p) => getRoot(p)
+                case None => e
+
+            val root = getRoot(ctx)
+
+            if root ne exprRoot then
+                exprRoot = root
+                exprTexts = getAll(root).groupBy(_.getText).map((txt, exprs) => txt -> exprs.size)
+                exprKinds.clear()
+                exprShared.clear()
+
+            def kind(e: IDP.ExprContext): Kind = getKind(e, varKinds.getOrElse(_, Kind.VOLATILE), exprKinds)
+
+            val txt = ctx.getText
+            val parentKind = getParent(ctx).map(kind)
+
+            def replace(f: ST => ST, desc: String): Unit =
+                val x = exprShared.get(txt) match
+                    case Some(x) =>
+                        stack.pop()
+                        logger.debug(s"IDL expression is shared within the term in '$origin': $txt")
+                        x
+                    case None =>
+                        logger.debug(s"IDL expression is $desc in '$origin': $txt")
+                        f(stack.pop())
+
+                exprShared += txt -> x
+                stack.push(x)
+
+            kind(ctx) match
+                case Kind.CONST if !parentKind.contains(Kind.CONST) =>
+                    fold(stack.top) match
+                        case Some(x) =>
+                            stack.pop()
+                            stack.push(x)
+                            logger.debug(s"IDL expression is folded to constant in '$origin': $txt")
+                        case None => // No-op.
+                case Kind.REQUEST if !parentKind.contains(Kind.REQUEST) => replace(memoByRequest, "computed once per request")
+                case Kind.ENTITY if exprTexts.getOrElse(txt, 0) > 1 => replace(memoByEvaluation, "computed once per entity")
+                case _ => // No-op.
+
+        override def exitUnaryExpr(ctx: IDP.UnaryExprContext): Unit = addExpr(parseUnaryExpr(ctx.MINUS(), ctx.NOT())(ctx))(ctx)
+        override def exitMultDivModExpr(ctx: IDP.MultDivModExprContext): Unit = addExpr(parseMultDivModExpr(ctx.MULT(), ctx.MOD(), ctx.DIV())(ctx))(ctx)
+        override def exitPlusMinusExpr(ctx: IDP.PlusMinusExprContext): Unit = addExpr(parsePlusMinusExpr(ctx.PLUS(), ctx.MINUS())(ctx))(ctx)
+        override def exitCompExpr(ctx: IDP.CompExprContext): Unit = addExpr(parseCompExpr(ctx.LT(), ctx.GT(), ctx.LTEQ(), ctx.GTEQ())(ctx))(ctx)
+        override def exitAndOrExpr(ctx: IDP.AndOrExprContext): Unit = addExpr(parseAndOrExpr(ctx.AND, ctx.OR())(ctx))(ctx)
+        override def exitEqNeqExpr(ctx: IDP.EqNeqExprContext): Unit = addExpr(parseEqNeqExpr(ctx.EQ, ctx.NEQ())(ctx))(ctx)
+        override def exitAtom(ctx: IDP.AtomContext): Unit = parseAtom(ctx.getText)(ctx)(stack)
         override def exitTermEq(ctx: IDP.TermEqContext): Unit = termConv = ctx.TILDA() != null
         override def exitFragMeta(ctx: IDP.FragMetaContext): Unit = fragMeta = json2Obj(ctx.jsonObj().getText)(ctx)
         override def exitMetaDecl(ctx: IDP.MetaDeclContext): Unit = intentMeta = json2Obj(ctx.jsonObj().getText)(ctx)
@@ -119,11 +225,28 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
         override def exitIntentId(ctx: IDP.IntentIdContext): Unit =  intentId = ctx.id().getText
 
         override def exitCallExpr(ctx: IDP.CallExprContext): Unit =
-            val fun =
-                if ctx.FUN_NAME() != null then ctx.FUN_NAME().getText
-                else "ent_type"
+            val fun = NCIDLFunctionRegistry.getName(ctx)
+
+            // Function is resolved once, here, instead of on each evaluation.
+            val f = NCIDLFunctionRegistry.get(fun).orElse(customFuns.get(fun)) match
+                case Some(f) =>
+                    val argNum = countParams(ctx.paramList())
+
+                    if !f.sig.accepts(argNum) then
+                        SE(s"Invalid number of parameters for IDL function '$fun()' (${f.sig} is required, found: $argNum).")(ctx)
 
-            expr += parseCallExpr(fun)(ctx)
+                    f
+                case None => SE(s"Unknown IDL function: $fun()")(ctx)
+
+            addExpr(parseCallExpr(fun, f)(ctx))(ctx)
+
+        /**
+          *
+          * @param ctx
+          */
+        @tailrec
+        private def countParams(ctx: IDP.ParamListContext, n: Int = 0): Int =
+            if ctx == null then n else countParams(ctx.paramList(), n + 1)
 
         private def convertToOptions(json: Map[String, Object])(ctx: IDP.OptDeclContext): NCIDLIntentOptions =
             val opts = new NCIDLIntentOptions()
@@ -144,7 +267,7 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
             opts
 
         override def enterCallExpr(ctx: IDP.CallExprContext): Unit =
-            expr += ((_, stack: NCIDLStack, _) => stack.push(stack.PLIST_MARKER))
+            stack.push(stack.PLIST_MARKER)
 
         /**
           *
@@ -158,14 +281,15 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
         override def exitVarRef(ctx: IDP.VarRefContext): Unit =
             val varName = ctx.id().getText
             if !vars.contains(varName) then SE(s"Undefined variable: @$varName")(ctx)
-            val instr: SI = (ent: NCIDLEntity, stack: S, idlCtx: NCIDLContext) => stack.push(() => idlCtx.vars(varName)(ent, idlCtx))
-            expr += instr
+            val instr: SI = (stack: S) => stack.push((ent, idlCtx) => idlCtx.vars(varName)(ent, idlCtx))
+            addExpr(instr)(ctx)
 
         override def exitVarDecl(ctx: IDP.VarDeclContext): Unit =
             val varName = ctx.id().getText
             if vars.contains(varName) then SE(s"Duplicate variable: @$varName")(ctx)
             vars += varName -> exprToFunction("Variable declaration", _ => true)(ctx)
-            expr.clear()
+            varKinds += varName -> getKind(ctx.expr(), varKinds.getOrElse(_, Kind.VOLATILE), exprKinds)
+            stack.clear()
 
         override def exitMinMaxShortcut(ctx: IDP.MinMaxShortcutContext): Unit =
             if ctx.PLUS() != null then setMinMax(1, MINMAX_MAX)
@@ -222,6 +346,10 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
             if max < 1 then SE(s"Invalid intent term max quantifiers: $max (must be max >= 1).")(ctx.minMax())
 
             val pred: NCIDLFunction = exprToFunction("Intent term", isBool)(ctx.expr())
+            val predKey =
+                Option.when(isRequestPure(getVarExprs(ctx.vars()) :+ ctx.expr()))(
+                    s"${if ctx.vars() != null then ctx.vars().getText else ""}${ctx.expr().getText}"
+                )
 
             // Add term.
             terms += NCIDLTerm(
@@ -231,14 +359,26 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
                 pred,
                 min,
                 max,
-                termConv
+                termConv,
+                entTypes = NCIDLEntityTypes.get(ctx.expr()),
+                predKey = predKey
             )
 
             // Reset term vars.
             setMinMax(1, 1)
             termId = null
-            expr.clear()
+            stack.clear()
             vars.clear()
+            varKinds.clear()
+
+        /**
+          *
+          * @param ctx
+          * @param acc
+          */
+        @tailrec
+        private def getVarExprs(ctx: IDP.VarsContext, acc: List[IDP.ExprContext] = List.empty): List[IDP.ExprContext] =
+            if ctx == null then acc else getVarExprs(ctx.vars(), ctx.varDecl().expr() :: acc)
 
         /**
           *
@@ -247,24 +387,20 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
           * @param ctx
           */
         private def exprToFunction(subj: String, check: Object => Boolean)(implicit ctx: PRC): NCIDLFunction =
-            val code = mutable.Buffer.empty[SI]
+            // Instructions are already executed, they have built the expression tree.
+            require(stack.nonEmpty, ctx.getText)
 
-            code ++= expr
+            val root = stack.pop()
 
             (ent: NCIDLEntity, termCtx: NCIDLContext) => {
-                val stack = new S()
-
-                // Execute all instructions.
-                code.foreach(_ (ent, stack, termCtx))
-
-                // Pop final result from stack.
-                val x = stack.pop()()
+                // Evaluate the expression tree.
+                val x = root(ent, termCtx)
                 val v = x.value
 
                 // Check final value's type.
                 if !check(v) then RE(s"$subj returned value of unexpected type '$v' in: ${ctx.getText}")
 
-                Z(v, x.entUse)
+                x
             }
 
         override def exitFrag(ctx: IDP.FragContext): Unit =
@@ -498,7 +634,7 @@ class NCIDLCompiler(cfg: NCModelConfig) extends LazyLogging with mutable.Cloneab
         })
 
     def clone(cp: NCIDLCompiler): NCIDLCompiler =
-        val cp = new NCIDLCompiler(cfg)
+        val cp = new NCIDLCompiler(cfg, patternCache, funs)
 
         cp.intents ++= cp.intents.clone()
 
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.intent.compiler
+
+import org.apache.nlpcraft.internal.intent.compiler.antlr4.NCIDLParser as IDP
+import org.apache.nlpcraft.internal.util.NCUtils
+
+/**
+  * Conservative analysis of the term predicate expression which finds entity types the term can match.
+  * Only `# == 'x'` and `ent_type == 'x'` comparisons combined by `&&` and `||` are taken into account,
+  * any other expression can match entity of any type.
+  */
+object NCIDLEntityTypes:
+    /**
+      *
+      * @param expr
+      */
+    private def isEntType(expr: IDP.ExprContext): Boolean =
+        expr match
+            case x: IDP.CallExprContext =>
+                x.paramList() == null && NCIDLFunctionRegistry.getName(x) == "ent_type"
+            case _ => false
+
+    /**
+      *
+      * @param expr
+      */
+    private def getString(expr: IDP.ExprContext): Option[String] =
+        expr match
+            case x: IDP.AtomExprContext if x.atom().qstring() != null => NCUtils.escapesQuotes(x.atom().qstring().getText).?
+            case _ => None
+
+    /**
+      * Gets entity types which can be matched by given term predicate expression.
+      *
+      * @param expr Term predicate expression.
+      * @return Entity types or `None` if the predicate can match entity of any type.
+      */
+    def get(expr: IDP.ExprContext): Option[Set[String]] =
+        expr match
+            case x: IDP.ParExprContext => get(x.expr())
+            case x: IDP.EqNeqExprContext if x.EQ() != null =>
+                val (e1, e2) = (x.expr(0), x.expr(1))
+
+                if isEntType(e1) then getString(e2).map(Set(_))
+                else if isEntType(e2) then getString(e1).map(Set(_))
+                else None
+            case x: IDP.AndOrExprContext =>
+                val (t1, t2) = (get(x.expr(0)), get(x.expr(1)))
+
+                if x.AND() != null then
+                    (t1, t2) match
+                        case (Some(s1), Some(s2)) => Some(s1 & s2)
+                        case _ => t1.orElse(t2)
+                else
+                    for (s1 <- t1; s2 <- t2) yield s1 | s2
+            case _ => None
@@ -0,0 +1,539 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.intent.compiler
+
+import org.antlr.v4.runtime.ParserRuleContext as PRC
+import org.apache.commons.collections4.CollectionUtils
+import org.apache.nlpcraft.*
+import org.apache.nlpcraft.internal.intent.{NCIDLStackItem as Z, *}
+import org.apache.nlpcraft.internal.util.*
+
+import java.lang.{Double as JDouble, Integer as JInt, Long as JLong}
+import java.util
+import java.util.{Collections, List as JList, Map as JMap}
+import java.util.regex.Pattern
+import scala.jdk.CollectionConverters.*
+
+/**
+  * IDL function call being built by the function builder (see [[NCIDLFunctionRegistry]]). The call parameters are
+  * already on the compile time stack, builder pops them and pushes the function implementation instead.
+  *
+  * @param gen Code generator.
+  * @param fun Function name.
+  * @param stack Compile time stack.
+  * @param ctx Function call expression.
+  */
+class NCIDLFunctionCall(gen: NCIDLCodeGenerator, fun: String, stack: NCIDLStack)(implicit ctx: PRC):
+    import gen.*
+
+    private implicit val evidence: S = stack
+
+    // Call is built during compilation, so wrong number of parameters is a syntax error.
+    private def missingParams(argNum: Int): Nothing =
+        throw newSyntaxError(s"Missing parameters for IDL function ($argNum is required): $fun()")
+    private def popMarker(argNum: Int): Unit =
+        if pop1() != stack.PLIST_MARKER then throw newSyntaxError(s"Too many parameters for IDL function ($argNum is required): $fun()")
+    private def arg[X](argNum: Int, f: () => X): X =
+        // +1 for stack frame marker.
+        if stack.size < argNum + 1 then missingParams(argNum)
+
+        val x = f()
+        x match
+            case p: Product =>
+                for (e <- p.productIterator)
+                    if e == stack.PLIST_MARKER then missingParams(argNum)
+            case _ => if x.asInstanceOf[ST] == stack.PLIST_MARKER then missingParams(argNum)
+
+        // Make sure to pop up the parameter list stack frame marker.
+        popMarker(argNum)
+
+        x
+
+    def arg1(): ST = arg(1, pop1)
+    def arg2(): (ST, ST) = arg(2, pop2)
+    def arg3(): (ST, ST, ST) = arg(3, pop3)
+    def arg1Tok(): ST =
+        if stack.nonEmpty && stack.top == stack.PLIST_MARKER then
+            popMarker(1)
+            (ent, idlCtx) => Z(ent, 1)
+        else
+            arg1()
+
+    private def toX[T](typ: String, v: Object, is: Object => Boolean, as: Object => T): T =
+        if v == null then throw rtParamNullError(fun)
+        else if !is(v) then throw rtParamTypeError(fun, v, typ)
+        as(v)
+
+    private def toStr(v: Object): String = toX("string", v, isStr, asStr)
+    private def toInt(v: Object): JInt = toX("int", v, isInt, asInt).toInt
+    private def toList(v: Object): JList[_] = toX("list", v, isList, asList)
+    private def toMap(v: Object): JMap[_, _] = toX("map", v, isMap, asMap)
+    private def toEntity(v: Object): NCIDLEntity = toX("entity", v, isEntity, asEntity)
+    private def toBool(v: Object): Boolean = toX("boolean", v, isBool, asBool)
+    private def toDouble(v: Object): JDouble = toX("double or int", v, x => isInt(x) || isReal(x), asReal)
+
+    // Constant pattern is compiled here, once. Other patterns are taken from the shared cache.
+    private def mkPattern(x: ST, argNum: Int): Object => Pattern =
+        val const =
+            if isConstParam(argNum) then
+                try Some(Pattern.compile(toStr(x(null, null).value)))
+                catch case _: Exception => None // Error is reported at runtime, if this call is ever evaluated.
+            else
+                None
+
+        const match
+            case Some(p) => _ => p
+            case None =>
+                val cache = getPatternCache
+                v => cache.get(toStr(v))
+
+    def doSplit(): Unit =
+        val (x1, x2) = arg2()
+        val pattern = mkPattern(x2, 2)
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, n) = extract2(x1, x2)(ent, idlCtx)
+                val s = toStr(v1)
+                Z(util.Arrays.asList(pattern(v2).split(s):_*), n)
+            }
+        )
+
+    def doSplitTrim(): Unit =
+        val (x1, x2) = arg2()
+        val pattern = mkPattern(x2, 2)
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, n) = extract2(x1, x2)(ent, idlCtx)
+                val s = toStr(v1)
+                Z(util.Arrays.asList(pattern(v2).split(s).toList.map(_.strip):_*), n)
+            }
+        )
+
+    def doStartsWith(): Unit =
+        val (x1, x2) = arg2()
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, n) = extract2(x1, x2)(ent, idlCtx)
+                Z(toStr(v1).startsWith(toStr(v2)), n)
+            }
+        )
+
+    def doEndsWith(): Unit =
+        val (x1, x2) = arg2()
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, n) = extract2(x1, x2)(ent, idlCtx)
+                Z(toStr(v1).endsWith(toStr(v2)), n)
+            }
+        )
+
+    def doContains(): Unit =
+        val (x1, x2) = arg2()
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, n) = extract2(x1, x2)(ent, idlCtx)
+                Z(toStr(v1).contains(toStr(v2)),n)
+            }
+        )
+
+    def doIndexOf(): Unit =
+        val (x1, x2) = arg2()
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, n) = extract2(x1, x2)(ent, idlCtx)
+                Z(toStr(v1).indexOf(toStr(v2)), n)
+            }
+        )
+
+    def doSubstr(): Unit =
+        val (x1, x2, x3) = arg3()
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, v3, n) = extract3(x1, x2, x3)(ent, idlCtx)
+                Z(toStr(v1).substring(toInt(v2), toInt(v3)), n)
+            }
+        )
+
+    def doRegex(): Unit =
+        val (x1, x2) = arg2()
+        val pattern = mkPattern(x2, 2)
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, n) = extract2(x1, x2)(ent, idlCtx)
+                val s = toStr(v1)
+                Z(pattern(v2).matcher(s).matches(), n)
+            }
+        )
+
+    def doReplace(): Unit =
+        val (x1, x2, x3) = arg3()
+        val pattern = mkPattern(x2, 2)
+        stack.push(
+            (ent, idlCtx) => {
+                val (v1, v2, v3, n) = extract3(x1, x2, x3)(ent, idlCtx)
+                val s = toStr(v1)
+                Z(pattern(v2).matcher(s).replaceAll(toStr(v3)), n)
+            }
+        )
+
+    // Pops all parameters of the call, their number is already checked.
+    private def argAll(): Seq[ST] =
+        val dump = new S() // Empty list is allowed.
+        while (stack.nonEmpty && stack.top != stack.PLIST_MARKER) dump += stack.pop()
+
+        require(stack.nonEmpty)
+
+        // Pop frame marker.
+        pop1()
+
+        dump.toSeq.reverse
+
+    def doList(): Unit =
+        val items = argAll()
+
+        stack.push((ent, idlCtx) => {
+            val jl = new util.ArrayList[Object]()
+            var z = 0
+            items.foreach { x =>
+                val Z(v, n) = x(ent, idlCtx)
+                z += n
+                jl.add(v)
+            }
+            Z(jl, z)
+        })
+
+    def doReverse(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            // Argument list isn't changed, it can be shared (constant or cached value).
+            val jl = new util.ArrayList[Object](toList(v).asInstanceOf[JList[Object]])
+            Collections.reverse(jl)
+            Z(jl, n)
+        })
+
+    def doMin(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            val lst = toList(v).asInstanceOf[util.List[Object]]
+            try
+                if lst.isEmpty then throw rtEmptyListError(fun)
+                else Z(Collections.min(lst, null), n)
+            catch case e: Exception => throw rtListTypeError(fun, e)
+        })
+
+    def doAvg(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            val lst = toList(v).asInstanceOf[util.List[Object]]
+            try
+                if lst.isEmpty then throw rtEmptyListError(fun)
+                else
+                    val seq: Seq[Double] = lst.asScala.map(p => JDouble.valueOf(p.toString).doubleValue()).toSeq
+                    Z(seq.sum / seq.length, n)
+            catch case e: Exception => throw rtListTypeError(fun, e)
+        })
+
+    def doStdev(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            val lst = toList(v).asInstanceOf[util.List[Object]]
+            try
+                if lst.isEmpty then throw rtEmptyListError(fun)
+                else
+                    val seq: Seq[Double] = lst.asScala.map(p => JDouble.valueOf(p.toString).doubleValue()).toSeq
+                    val mean = seq.sum / seq.length
+                    val stdDev = Math.sqrt(seq.map( _ - mean).map(t => t * t).sum / seq.length)
+                    Z(stdDev, n)
+            catch case e: Exception => throw rtListTypeError(fun, e)
+        })
+
+    def doToString(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            if isList(v) then
+                val jl = new util.ArrayList[Object]()
+                for (d <- toList(v).asScala.map(_.toString)) jl.add(d)
+                Z(jl, n)
+            else
+                Z(v.toString, n)
+        })
+
+    def doToDouble(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            if isInt(v) then Z(asInt(v).toDouble, n)
+            else if isStr(v) then
+                try Z(toStr(v).toDouble, n)
+                catch case e: Exception => throw newRuntimeError(s"Invalid double value '$v' in IDL function: $fun()", e)
+            else
+                throw rtParamTypeError(fun, v, "int or string")
+        })
+
+    def doToInt(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            if isReal(v) then Z(Math.round(asReal(v)), n)
+            else if isStr(v) then
+                try Z(toStr(v).toLong, n)
+                catch case e: Exception => throw newRuntimeError(s"Invalid int value '$v' in IDL function: $fun()", e)
+            else
+                throw rtParamTypeError(fun, v, "double or string")
+        })
+
+    def doMax(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            val lst = toList(v).asInstanceOf[util.List[Object]]
+            try
+                if lst.isEmpty then throw rtEmptyListError(fun)
+                else Z(Collections.max(lst, null), n)
+            catch case e: Exception => throw rtListTypeError(fun, e)
+        })
+
+    def doSort(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            // Argument list isn't changed, it can be shared (constant or cached value).
+            val jl = new util.ArrayList[Object](toList(v).asInstanceOf[JList[Object]])
+            try jl.sort(null) // Use natural order.
+            catch case e: Exception => throw rtListTypeError(fun, e)
+
+            Z(jl, n)
+        })
+
+    def doDistinct(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            val jl = new util.ArrayList[Object]()
+            for (d <- toList(v).asScala.toSeq.distinct)
+                jl.add(d.asInstanceOf[Object])
+            Z(jl, n)
+        })
+
+    def doConcat(): Unit =
+        val (x1, x2) = arg2()
+        stack.push((ent, idlCtx) => {
+            val (lst1, lst2, n) = extract2(x1, x2)(ent, idlCtx)
+            val jl = new util.ArrayList[Object]()
+            for (d <- toList(lst1).asScala ++ toList(lst2).asScala)
+                jl.add(d.asInstanceOf[Object])
+            Z(jl, n)
+        })
+
+    def doHas(): Unit =
+        val (x1, x2) = arg2()
+        stack.push((ent, idlCtx) => {
+            val (lst, obj, n) = extract2(x1, x2)(ent, idlCtx)
+            Z(toList(lst).contains(box(obj)), n)
+        })
+
+    def doHasAll(): Unit =
+        val (x1, x2) = arg2()
+        stack.push((ent, idlCtx) => {
+            val (lst1, lst2, n) = extract2(x1, x2)(ent, idlCtx)
+            Z(toList(lst1).containsAll(toList(lst2)), n)
+        })
+
+    def doHasAny(): Unit =
+        val (x1, x2) = arg2()
+        stack.push((ent, idlCtx) => {
+            val (lst1, lst2, n) = extract2(x1, x2)(ent, idlCtx)
+            Z(CollectionUtils.containsAny(toList(lst1), toList(lst2)), n)
+        })
+
+    def doGet(): Unit =
+        val (x1, x2) = arg2()
+        stack.push((ent, idlCtx) => {
+            val (col, key, n) = extract2(x1, x2)(ent, idlCtx)
+            if isList(col) then
+                if isInt(key) then Z(asList(col).get(asInt(key).intValue()).asInstanceOf[Object], n)
+                else throw rtParamTypeError(fun, key, "numeric")
+            else if isMap(col) then Z(asMap(col).get(box(key)).asInstanceOf[Object], n)
+            else throw rtParamTypeError(fun, col, "list or map")
+        })
+
+    def doAbs(): Unit = arg1() match
+        case x => stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            v match
+                case a: JLong => Z(Math.abs(a), n)
+                case a: JDouble => Z(Math.abs(a), n)
+                case _ => throw rtParamTypeError(fun, v, "numeric")
+        })
+
+    def doSquare(): Unit = arg1() match
+        case x => stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            v match
+                case a: JLong => Z(a * a, n)
+                case a: JDouble => Z(a * a, n)
+                case _ => throw rtParamTypeError(fun, v, "numeric")
+        })
+
+    def doIf(): Unit =
+        val (x1, x2, x3) = arg3()
+
+        stack.push((ent, idlCtx) => {
+            val Z(v1, n1) = x1(ent, idlCtx)
+            if toBool(v1) then
+                val Z(v2, n2) = x2(ent, idlCtx)
+                Z(v2, n1 + n2)
+            else
+                val Z(v3, n3) = x3(ent, idlCtx)
+                Z(v3, n1 + n3)
+        })
+
+    def doOrElse(): Unit =
+        val (x1, x2) = arg2()
+        stack.push((ent, idlCtx) => {
+            val Z(v1, n1) = x1(ent, idlCtx)
+            if v1 != null then Z(v1, n1)
+            else x2(ent, idlCtx)
+        })
+
+    def doIsBefore(f: (NCIDLEntity, String) => Boolean): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(arg, n) = x(ent, idlCtx)
+            Z(idlCtx.entities.exists(t => t.index > ent.index && f(t, toStr(arg))), n)
+        })
+
+    def doIsAfter(f: (NCIDLEntity, String) => Boolean): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(arg, n) = x(ent, idlCtx)
+            Z(idlCtx.entities.exists(t => t.index < ent.index && f(t, toStr(arg))), n)
+        })
+
+    def doIsBetween(f: (NCIDLEntity, String) => Boolean): Unit =
+        val (x1, x2) = arg2()
+        stack.push((ent, idlCtx) => {
+            val (a1, a2, n) = extract2(x1, x2)(ent, idlCtx)
+            Z(
+                idlCtx.entities.exists(t => t.index < ent.index && f(t, toStr(a1)))
+                &&
+                idlCtx.entities.exists(t => t.index > ent.index && f(t, toStr(a2)))
+                ,
+                n
+            )
+        })
+
+    def doForAll(f: (NCIDLEntity, String) => Boolean): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(arg, n) = x(ent, idlCtx)
+            Z(idlCtx.entities.filter(f(_, toStr(arg))).asJava, n)
+        })
+
+    def doLength(): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            if isList(v) then Z(asList(v).size(), n)
+            else if isMap(v) then Z(asMap(v).size(), n)
+            else if isStr(v) then Z(asStr(v).length, n)
+            else throw rtParamTypeError(fun, v, "string or list")
+        })
+
+    def doIsEmpty(empty: Boolean): Unit =
+        val x = arg1()
+        stack.push((ent, idlCtx) => {
+            val Z(v, n) = x(ent, idlCtx)
+            if isList(v) then Z(asList(v).isEmpty == empty, n)
+            else if isMap(v) then Z(asMap(v).isEmpty == empty, n)
+            else if isStr(v) then Z(asStr(v).isEmpty == empty, n)
+            else throw rtParamTypeError(fun, v, "string or list")
+        })
+
+    def z[Y](args: () => Y, body: (Y, NCIDLEntity, NCIDLContext) => Z): Unit =
+        val x = args()
+        stack.push((ent, idlCtx) => body(x, ent, idlCtx))
+
+    def z0(body: (NCIDLEntity, NCIDLContext) => Z): Unit =
+        popMarker(0)
+        stack.push((ent, idlCtx) => body(ent, idlCtx))
+
+    // Entities availability is checked before the function evaluation.
+    def checkAvail(): Unit =
+        val x = pop1()
+        stack.push((ent, idlCtx) => {
+            if idlCtx.entities.isEmpty then throw rtUnavailFunError(fun)
+            x(ent, idlCtx)
+        })
+
+    def doMeta(uses: Int => Int)(get: (NCIDLEntity, NCIDLContext, String) => Object): Unit =
+        z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); Z(box(get(ent, idlCtx, toStr(v))), uses(n)) })
+
+    def doJson(): Unit = z[ST](arg1, { (x, ent, idlCtx) => val Z(v, f) = x(ent, idlCtx); Z(NCUtils.jsonToJavaMap(asStr(v)), f) })
+
+    def doEnt(f: (NCIDLEntity, NCIDLContext) => Z): Unit =
+        val x = arg1Tok()
+        stack.push((ent, idlCtx) => f(toEntity(x(ent, idlCtx).value), idlCtx))
+
+    def doStr(f: String => String): Unit = z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); Z(f(toStr(v)), n) })
+    def doStrIs(f: String => Boolean): Unit = z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); Z(f(toStr(v)), n) })
+
+    def doMath(f: Double => Double): Unit = z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); Z(f(toDouble(v)), n) })
+    def doMath2(f: (Double, Double) => Double): Unit =
+        z[(ST, ST)](arg2, { (x, ent, idlCtx) => val (v1, v2, n) = extract2(x._1, x._2)(ent, idlCtx); Z(f(toDouble(v1), toDouble(v2)), n) })
+    def doRound(): Unit = z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); Z(Math.round(toDouble(v)), n) })
+
+    def doFirst(): Unit =
+        z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); val lst = toList(v); Z(if (lst.isEmpty) null else lst.get(0).asInstanceOf[Object], n)})
+    def doLast(): Unit =
+        z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); val lst = toList(v); Z(if (lst.isEmpty) null else lst.get(lst.size() - 1).asInstanceOf[Object], n)})
+    def doKeys(): Unit = z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); Z(new util.ArrayList(toMap(v).keySet()), n) })
+    def doValues(): Unit = z[ST](arg1, { (x, ent, idlCtx) => val Z(v, n) = x(ent, idlCtx); Z(new util.ArrayList(toMap(v).values()), n) })
+
+    /**
+      * Builds the call of the model custom function. It is called on each evaluation with the values of all its
+      * parameters, entities are passed as [[NCEntity]].
+      *
+      * @param f Custom function.
+      */
+    def doCustom(f: NCIntentFunction): Unit =
+        val items = argAll()
+
+        def toUser(v: Object): Object =
+            v match
+                case e: NCIDLEntity => e.impl
+                case l: JList[_] if l.asScala.exists(p => isEntity(p.asInstanceOf[Object])) =>
+                    l.asScala.map(p => toUser(p.asInstanceOf[Object])).asJava
+                case _ => v
+
+        stack.push((ent, idlCtx) => {
+            var z = 0
+            val args = items.map { x =>
+                val Z(v, n) = x(ent, idlCtx)
+                z += n
+                toUser(v)
+            }.toList
+
+            Z(box(f.call(args).asInstanceOf[Object]), z)
+        })
+
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.intent.compiler
+
+import org.antlr.v4.runtime.CharStreams
+import org.apache.commons.lang3.StringUtils
+import org.apache.nlpcraft.*
+import org.apache.nlpcraft.internal.intent.NCIDLStackItem as Z
+import org.apache.nlpcraft.internal.intent.compiler.antlr4.{NCIDLLexer, NCIDLParser as IDP}
+import org.apache.nlpcraft.internal.util.NCUtils
+
+import java.time.temporal.IsoFields
+import java.time.{LocalDate, LocalTime}
+import java.util.Calendar
+import scala.jdk.CollectionConverters.*
+
+/**
+  * Registry of the built-in IDL functions. Each function is defined once, here, by its signature and its builder.
+  * Function calls are resolved against this registry once, during compilation, so unknown functions and wrong
+  * number of parameters are reported as syntax errors with the call position, and the builder binds the function
+  * implementation to its already checked parameters. Model custom functions (see [[NCModel.getIntentFunctions]])
+  * are resolved the same way.
+  */
+object NCIDLFunctionRegistry:
+    /**
+      * Function signature.
+      *
+      * @param minArgs Minimum number of parameters.
+      * @param maxArgs Maximum number of parameters.
+      */
+    case class NCIDLFunctionSignature(minArgs: Int, maxArgs: Int):
+        require(minArgs >= 0 && minArgs <= maxArgs)
+
+        /**
+          * Checks whether the function can be called with given number of parameters.
+          *
+          * @param argNum Number of parameters.
+          */
+        def accepts(argNum: Int): Boolean = argNum >= minArgs && argNum <= maxArgs
+
+        override def toString: String =
+            if minArgs == maxArgs then s"$minArgs"
+            else if maxArgs == Int.MaxValue then s"$minArgs or more"
+            else s"$minArgs to $maxArgs"
+
+    /**
+      * Function definition.
+      *
+      * @param sig Function signature.
+      * @param build Function builder, it pops the call parameters from the compile time stack and pushes
+      *     the function implementation.
+      */
+    case class NCIDLFunctionDef(sig: NCIDLFunctionSignature, build: NCIDLFunctionCall => Unit)
+
+    /**
+      *
+      * @param min
+      * @param max
+      * @param funs
+      * @param build
+      */
+    private def fn(min: Int, max: Int, funs: String*)(build: NCIDLFunctionCall => Unit): Seq[(String, NCIDLFunctionDef)] =
+        val f = NCIDLFunctionDef(NCIDLFunctionSignature(min, max), build)
+        funs.map(_ -> f)
+
+    /**
+      * Adds entities availability check to the given function builder.
+      *
+      * @param build Function builder.
+      */
+    private def avail(build: NCIDLFunctionCall => Unit): NCIDLFunctionCall => Unit = c => { build(c); c.checkAvail() }
+
+    private final val FUNCS: Map[String, NCIDLFunctionDef] = Seq(
+        // Metadata access.
+        fn(1, 1, "meta_ent")(_.doMeta(_ => 1)((ent, _, k) => ent.impl.get[Object](k).orNull)),
+        fn(1, 1, "meta_cfg")(_.doMeta(_ => 0)((_, idlCtx, k) => idlCtx.mdlCfg.get[Object](k).orNull)),
+        fn(1, 1, "meta_req")(_.doMeta(_ => 0)((_, idlCtx, k) => idlCtx.req.getRequestData.get(k).orNull.asInstanceOf[Object])),
+        fn(1, 1, "meta_intent")(_.doMeta(_ => 0)((_, idlCtx, k) => idlCtx.intentMeta.get(k).orNull)),
+        fn(1, 1, "meta_conv")(_.doMeta(_ => 0)((_, idlCtx, k) => idlCtx.convMeta.get(k).orNull)),
+        fn(1, 1, "meta_frag")(_.doMeta(n => n)((_, idlCtx, k) => idlCtx.fragMeta.get(k).orNull)),
+        fn(1, 1, "meta_sys")(_.doMeta(_ => 0)((_, _, k) => NCUtils.sysEnv(k).orNull)),
+
+        // Converts JSON to map.
+        fn(1, 1, "json")(_.doJson()),
+
+        // Inline if-statement.
+        fn(3, 3, "if")(_.doIf()),
+        fn(2, 2, "or_else")(_.doOrElse()),
+
+        // Model configuration.
+        fn(0, 0, "mdl_id")(_.z0((_, idlCtx) => Z(idlCtx.mdlCfg.getId, 0))),
+        fn(0, 0, "mdl_name")(_.z0((_, idlCtx) => Z(idlCtx.mdlCfg.getName, 0))),
+        fn(0, 0, "mdl_ver")(_.z0((_, idlCtx) => Z(idlCtx.mdlCfg.getVersion, 0))),
+        fn(0, 0, "mdl_origin")(_.z0((_, idlCtx) => Z(idlCtx.mdlCfg.getOrigin.orNull, 0))),
+
+        // Entity functions, they are applied to the current entity if called without parameters.
+        fn(0, 1, "ent_type")(_.doEnt((e, _) => Z(e.impl.getType, 1))),
+        fn(0, 1, "ent_index")(_.doEnt((e, _) => Z(e.index, 1))),
+        fn(0, 1, "ent_text")(_.doEnt((e, _) => Z(e.text, 1))),
+        fn(0, 0, "ent_count")(avail(_.z0((_, idlCtx) => Z(idlCtx.entities.size, 0)))),
+        fn(0, 1, "ent_groups")(_.doEnt((e, _) => Z(java.util.List.copyOf(e.impl.getGroups.asJava), 1))),
+        fn(0, 0, "ent_all")(avail(_.z0((_, idlCtx) => Z(idlCtx.entities.asJava, 0)))),
+        fn(1, 1, "ent_all_for_type")(avail(_.doForAll((e, typ) => e.impl.getType == typ))),
+        fn(1, 1, "ent_all_for_group")(avail(_.doForAll((e, grp) => e.impl.getGroups.contains(grp)))),
+        fn(0, 0, "ent_this")(_.z0((ent, _) => Z(ent, 1))),
+        fn(0, 1, "ent_is_last")(avail(_.doEnt((e, idlCtx) => Z(e.index == idlCtx.entities.size - 1, 1)))),
+        fn(0, 1, "ent_is_first")(avail(_.doEnt((e, _) => Z(e.index == 0, 1)))),
+        fn(1, 1, "ent_is_before_type")(avail(_.doIsBefore((e, typ) => e.impl.getType == typ))),
+        fn(1, 1, "ent_is_before_group")(avail(_.doIsBefore((e, grpId) => e.impl.getGroups.contains(grpId)))),
+        fn(1, 1, "ent_is_after_type")(avail(_.doIsAfter((e, typ) => e.impl.getType == typ))),
+        fn(1, 1, "ent_is_after_group")(avail(_.doIsAfter((e, grpId) => e.impl.getGroups.contains(grpId)))),
+        fn(2, 2, "ent_is_between_types")(avail(_.doIsBetween((e, typ) => e.impl.getType == typ))),
+        fn(2, 2, "ent_is_between_groups")(avail(_.doIsBetween((e, grpId) => e.impl.getGroups.contains(grpId)))),
+
+        // Request data.
+        fn(0, 0, "req_id")(_.z0((_, idlCtx) => Z(idlCtx.req.getRequestId, 0))),
+        fn(0, 0, "req_text")(_.z0((_, idlCtx) => Z(idlCtx.req.getText, 0))),
+        fn(0, 0, "req_tstamp")(_.z0((_, idlCtx) => Z(idlCtx.req.getReceiveTimestamp, 0))),
+        fn(0, 0, "user_id")(_.z0((_, idlCtx) => Z(idlCtx.req.getUserId, 0))),
+
+        // String functions.
+        fn(1, 1, "trim", "strip")(_.doStr(_.trim)),
+        fn(1, 1, "uppercase")(_.doStr(_.toUpperCase)),
+        fn(1, 1, "lowercase")(_.doStr(_.toLowerCase)),
+        fn(1, 1, "is_alpha")(_.doStrIs(StringUtils.isAlpha)),
+        fn(1, 1, "is_alphanum")(_.doStrIs(StringUtils.isAlphanumeric)),
+        fn(1, 1, "is_whitespace")(_.doStrIs(StringUtils.isWhitespace)),
+        fn(1, 1, "is_num")(_.doStrIs(StringUtils.isNumeric)),
+        fn(1, 1, "is_numspace")(_.doStrIs(StringUtils.isNumericSpace)),
+        fn(1, 1, "is_alphaspace")(_.doStrIs(StringUtils.isAlphaSpace)),
+        fn(1, 1, "is_alphanumspace")(_.doStrIs(StringUtils.isAlphanumericSpace)),
+        fn(2, 2, "split")(_.doSplit()),
+        fn(2, 2, "split_trim")(_.doSplitTrim()),
+        fn(2, 2, "starts_with")(_.doStartsWith()),
+        fn(2, 2, "ends_with")(_.doEndsWith()),
+        fn(2, 2, "contains")(_.doContains()),
+        fn(2, 2, "index_of")(_.doIndexOf()),
+        fn(3, 3, "substr")(_.doSubstr()),
+        fn(2, 2, "regex")(_.doRegex()),
+        fn(3, 3, "replace")(_.doReplace()),
+        fn(1, 1, "to_double")(_.doToDouble()),
+        fn(1, 1, "to_int")(_.doToInt()),
+
+        // Math functions.
+        fn(1, 1, "abs")(_.doAbs()),
+        fn(1, 1, "ceil")(_.doMath(Math.ceil)),
+        fn(1, 1, "floor")(_.doMath(Math.floor)),
+        fn(1, 1, "rint")(_.doMath(Math.rint)),
+        fn(1, 1, "round")(_.doRound()),
+        fn(1, 1, "signum")(_.doMath(Math.signum)),
+        fn(1, 1, "sqrt")(_.doMath(Math.sqrt)),
+        fn(1, 1, "cbrt")(_.doMath(Math.cbrt)),
+        fn(1, 1, "acos")(_.doMath(Math.acos)),
+        fn(1, 1, "asin")(_.doMath(Math.asin)),
+        fn(1, 1, "atan")(_.doMath(Math.atan)),
+        fn(1, 1, "cos")(_.doMath(Math.cos)),
+        fn(1, 1, "sin")(_.doMath(Math.sin)),
+        fn(1, 1, "tan")(_.doMath(Math.tan)),
+        fn(1, 1, "cosh")(_.doMath(Math.cosh)),
+        fn(1, 1, "sinh")(_.doMath(Math.sinh)),
+        fn(1, 1, "tanh")(_.doMath(Math.tanh)),
+        fn(2, 2, "atan2")(_.doMath2(Math.atan2)),
+        fn(1, 1, "degrees")(_.doMath(Math.toDegrees)),
+        fn(1, 1, "radians")(_.doMath(Math.toRadians)),
+        fn(1, 1, "exp")(_.doMath(Math.exp)),
+        fn(1, 1, "expm1")(_.doMath(Math.expm1)),
+        fn(2, 2, "hypot")(_.doMath2(Math.hypot)),
+        fn(1, 1, "log")(_.doMath(Math.log)),
+        fn(1, 1, "log10")(_.doMath(Math.log10)),
+        fn(1, 1, "log1p")(_.doMath(Math.log1p)),
+        fn(2, 2, "pow")(_.doMath2(Math.pow)),
+        fn(1, 1, "square")(_.doSquare()),
+        fn(0, 0, "pi")(_.z0((_, _) => Z(Math.PI, 0))),
+        fn(0, 0, "euler")(_.z0((_, _) => Z(Math.E, 0))),
+        fn(0, 0, "rand")(_.z0((_, _) => Z(Math.random, 0))),
+
+        // Collection functions.
+        fn(0, Int.MaxValue, "list")(_.doList()),
+        fn(2, 2, "get")(_.doGet()), // Works for both lists (int index) and maps (object key).
+        fn(2, 2, "has")(_.doHas()), // Only works for lists.
+        fn(2, 2, "has_any")(_.doHasAny()),
+        fn(2, 2, "has_all")(_.doHasAll()),
+        fn(1, 1, "first")(_.doFirst()),
+        fn(1, 1, "last")(_.doLast()),
+        fn(1, 1, "keys")(_.doKeys()),
+        fn(1, 1, "values")(_.doValues()),
+        fn(1, 1, "reverse")(_.doReverse()),
+        fn(1, 1, "sort")(_.doSort()),
+        fn(1, 1, "is_empty")(_.doIsEmpty(true)),
+        fn(1, 1, "non_empty")(_.doIsEmpty(false)),
+        fn(1, 1, "distinct")(_.doDistinct()),
+        fn(2, 2, "concat")(_.doConcat()),
+
+        // Applies to strings as well.
+        fn(1, 1, "size", "count", "length")(_.doLength()),
+
+        // Misc.
+        fn(1, 1, "to_string")(_.doToString()),
+
+        // Statistical operations on lists.
+        fn(1, 1, "max")(_.doMax()),
+        fn(1, 1, "min")(_.doMin()),
+        fn(1, 1, "avg")(_.doAvg()),
+        fn(1, 1, "stdev")(_.doStdev()),
+
+        // Date-time functions.
+        fn(0, 0, "year")(_.z0((_, _) => Z(LocalDate.now.getYear, 0))), // 2021.
+        fn(0, 0, "month")(_.z0((_, _) => Z(LocalDate.now.getMonthValue, 0))), // 1 ... 12.
+        fn(0, 0, "day_of_month")(_.z0((_, _) => Z(LocalDate.now.getDayOfMonth, 0))), // 1 ... 31.
+        fn(0, 0, "day_of_week")(_.z0((_, _) => Z(LocalDate.now.getDayOfWeek.getValue, 0))),
+        fn(0, 0, "day_of_year")(_.z0((_, _) => Z(LocalDate.now.getDayOfYear, 0))),
+        fn(0, 0, "hour")(_.z0((_, _) => Z(LocalTime.now.getHour, 0))),
+        fn(0, 0, "minute")(_.z0((_, _) => Z(LocalTime.now.getMinute, 0))),
+        fn(0, 0, "second")(_.z0((_, _) => Z(LocalTime.now.getSecond, 0))),
+        fn(0, 0, "week_of_month")(_.z0((_, _) => Z(Calendar.getInstance().get(Calendar.WEEK_OF_MONTH), 0))),
+        fn(0, 0, "week_of_year")(_.z0((_, _) => Z(Calendar.getInstance().get(Calendar.WEEK_OF_YEAR), 0))),
+        fn(0, 0, "quarter")(_.z0((_, _) => Z(LocalDate.now().get(IsoFields.QUARTER_OF_YEAR), 0))),
+        fn(0, 0, "now")(_.z0((_, _) => Z(NCUtils.now(), 0))) // Epoc time.
+    ).flatten.toMap
+
+    /**
+      * Gets definition of the given built-in function.
+      *
+      * @param fun Function name.
+      * @return Function definition or `None` if function is unknown.
+      */
+    def get(fun: String): Option[NCIDLFunctionDef] = FUNCS.get(fun)
+
+    /**
+      * Gets the name of the called function.
+      *
+      * @param ctx Function call expression.
+      */
+    def getName(ctx: IDP.CallExprContext): String =
+        if ctx.FUN_NAME() != null then ctx.FUN_NAME().getText
+        else if ctx.ID() != null then ctx.ID().getText
+        else "ent_type" // '#' shortcut.
+
+    /**
+      * Makes definitions of the model custom functions.
+      *
+      * @param funs Custom functions by their names.
+      */
+    def mkCustom(funs: Map[String, NCIntentFunction]): Map[String, NCIDLFunctionDef] =
+        require(funs != null, "Intent functions cannot be null.")
+
+        for ((name, f) <- funs) yield
+            if name == null || f == null then E("Intent function name and function cannot be null.")
+            if FUNCS.contains(name) then E(s"Intent function name clashes with built-in IDL function: $name")
+
+            // Name should be parsed as a single identifier, not as a keyword or several tokens.
+            val lexer = new NCIDLLexer(CharStreams.fromString(name))
+            lexer.removeErrorListeners()
+            val toks = lexer.getAllTokens.asScala
+
+            if toks.sizeIs != 1 || toks.head.getType != IDP.ID || toks.head.getText != name then
+                E(s"Invalid intent function name: $name")
+
+            val sig =
+                try NCIDLFunctionSignature(f.getMinArgs, f.getMaxArgs)
+                catch case _: IllegalArgumentException => E(s"Invalid number of parameters of intent function: $name")
+
+            name -> NCIDLFunctionDef(sig, _.doCustom(f))
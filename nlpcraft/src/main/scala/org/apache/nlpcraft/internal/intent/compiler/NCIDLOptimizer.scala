@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.intent.compiler
+
+import org.antlr.v4.runtime.ParserRuleContext as PRC
+import org.antlr.v4.runtime.tree.ParseTree
+import org.apache.nlpcraft.*
+import org.apache.nlpcraft.internal.intent.*
+import org.apache.nlpcraft.internal.intent.compiler.antlr4.NCIDLParser as IDP
+
+import java.util.concurrent.atomic.AtomicReference
+import scala.annotation.tailrec
+import scala.collection.mutable
+
+/**
+  * IDL expressions optimizer. Each expression is classified by its dependencies, see [[NCIDLOptimizer.Kind]]:
+  *  - constant expressions are folded, i.e. computed once during compilation,
+  *  - request invariant expressions are computed once per request,
+  *  - repeated entity dependent expressions of the term are computed once per predicate evaluation.
+  */
+object NCIDLOptimizer:
+    /**
+      * Expression kind, defines when the expression value can change. Kinds are ordered, expression kind is
+      * the maximum of its own kind and its sub-expressions kinds.
+      */
+    enum Kind:
+        case CONST // Never changes.
+        case REQUEST // Doesn't change within the request.
+        case ENTITY // Depends on the entity or the term context.
+        case VOLATILE // Can change on each evaluation, never cached.
+
+    private final val REQ_FUNS = Set(
+        "meta_req", "meta_cfg", "meta_sys", "mdl_id", "mdl_name", "mdl_ver", "mdl_origin",
+        "req_id", "req_text", "req_tstamp", "user_id"
+    )
+    // Conversation data can be changed by the intent callback before the request is matched again.
+    private final val ENT_FUNS = Set("meta_ent", "meta_intent", "meta_frag", "meta_conv")
+    private final val VOLATILE_FUNS = Set(
+        "rand", "year", "month", "day_of_month", "day_of_week", "day_of_year", "hour", "minute", "second",
+        "week_of_month", "week_of_year", "quarter", "now"
+    )
+
+    // Functions which results depend on the term evaluation context (variant entities, entity position among the
+    // term matches, intent or fragment) or on the conversation data which can be changed by the intent callback.
+    private final val CTX_FUNS = Set(
+        "meta_intent", "meta_frag", "meta_conv", "ent_index", "ent_count", "ent_all", "ent_all_for_type",
+        "ent_all_for_group", "ent_is_last", "ent_is_first", "ent_is_before_type", "ent_is_before_group",
+        "ent_is_after_type", "ent_is_after_group", "ent_is_between_types", "ent_is_between_groups"
+    )
+
+    /**
+      *
+      * @param k1
+      * @param k2
+      */
+    private def max(k1: Kind, k2: Kind): Kind = if k1.ordinal >= k2.ordinal then k1 else k2
+
+    /**
+      * Gets parameters of the function call in their declaration order.
+      *
+      * @param ctx Parameters list.
+      * @param acc Already collected parameters.
+      */
+    @tailrec
+    def getParams(ctx: IDP.ParamListContext, acc: List[IDP.ExprContext] = List.empty): List[IDP.ExprContext] =
+        if ctx == null then acc else getParams(ctx.paramList(), ctx.expr() :: acc)
+
+    /**
+      * Gets function own kind, without its parameters. Model custom functions are never cached.
+      *
+      * @param fun Function name.
+      */
+    private def getFunctionKind(fun: String): Kind =
+        if NCIDLFunctionRegistry.get(fun).isEmpty then Kind.VOLATILE
+        else if REQ_FUNS.contains(fun) then Kind.REQUEST
+        else if VOLATILE_FUNS.contains(fun) then Kind.VOLATILE
+        else if ENT_FUNS.contains(fun) || fun.startsWith("ent_") then Kind.ENTITY
+        else Kind.CONST
+
+    /**
+      * Gets the kind of given expression.
+      *
+      * @param expr Expression.
+      * @param varKinds Kinds of the declared variables.
+      * @param memo Already computed kinds.
+      */
+    def getKind(expr: IDP.ExprContext, varKinds: String => Kind, memo: mutable.Map[IDP.ExprContext, Kind]): Kind =
+        def get(e: IDP.ExprContext): Kind = getKind(e, varKinds, memo)
+
+        memo.getOrElseUpdate(
+            expr,
+            expr match
+                case _: IDP.AtomExprContext => Kind.CONST
+                case x: IDP.ParExprContext => get(x.expr())
+                case x: IDP.VarRefContext => max(Kind.ENTITY, varKinds(x.id().getText))
+                case x: IDP.CallExprContext =>
+                    getParams(x.paramList()).map(get).foldLeft(getFunctionKind(NCIDLFunctionRegistry.getName(x)))(max)
+                case x: IDP.UnaryExprContext => get(x.expr())
+                case x: IDP.MultDivModExprContext => max(get(x.expr(0)), get(x.expr(1)))
+                case x: IDP.PlusMinusExprContext => max(get(x.expr(0)), get(x.expr(1)))
+                case x: IDP.CompExprContext => max(get(x.expr(0)), get(x.expr(1)))
+                case x: IDP.EqNeqExprContext => max(get(x.expr(0)), get(x.expr(1)))
+                case x: IDP.AndOrExprContext => max(get(x.expr(0)), get(x.expr(1)))
+                case _ => Kind.VOLATILE
+        )
+
+    /**
+      * Checks whether results of given expressions depend only on the entity and the request, i.e. they are the same
+      * for all intents, terms and variants the entity is checked for within the request.
+      *
+      * @param exprs Expressions, including all expressions of the variables they reference.
+      */
+    def isRequestPure(exprs: Seq[IDP.ExprContext]): Boolean =
+        exprs.flatMap(getAll).forall {
+            case x: IDP.CallExprContext =>
+                val fun = NCIDLFunctionRegistry.getName(x)
+
+                // Model custom functions results can depend on anything.
+                NCIDLFunctionRegistry.get(fun).nonEmpty && !CTX_FUNS.contains(fun) && !VOLATILE_FUNS.contains(fun)
+            case _ => true
+        }
+
+    /**
+      * Gets the closest enclosing expression, skipping parentheses and parameters lists.
+      *
+      * @param ctx Expression.
+      */
+    @tailrec
+    def getParent(ctx: PRC): Option[IDP.ExprContext] =
+        ctx.getParent match
+            case p: IDP.ParExprContext => getParent(p)
+            case p: IDP.ParamListContext => getParent(p)
+            case p: IDP.ExprContext => Some(p)
+            case _ => None
+
+    /**
+      * Gets all sub-expressions of given expression, including itself.
+      *
+      * @param expr Expression.
+      */
+    def getAll(expr: IDP.ExprContext): Seq[IDP.ExprContext] =
+        val buf = mutable.ArrayBuffer.empty[IDP.ExprContext]
+
+        def collect(t: ParseTree): Unit =
+            t match
+                case e: IDP.ExprContext => buf += e
+                case _ => // No-op.
+
+            for (i <- 0 until t.getChildCount) collect(t.getChild(i))
+
+        collect(expr)
+
+        buf.toSeq
+
+    /**
+      * Tries to compute given constant expression.
+      *
+      * @param x Constant expression.
+      * @return Computed expression or `None` if it cannot be computed during compilation.
+      */
+    def fold(x: NCIDLStackType): Option[NCIDLStackType] =
+        try
+            val z = x(null, null)
+            val folded: NCIDLStackType = (_, _) => z
+
+            Some(folded)
+        catch case _: Exception => None // Error is reported at runtime, if this expression is ever evaluated.
+
+    /**
+      * Wraps given request invariant expression, so it is computed once per request.
+      *
+      * @param x Request invariant expression.
+      */
+    def memoByRequest(x: NCIDLStackType): NCIDLStackType =
+        val last = new AtomicReference[(NCRequest, NCIDLStackItem)]()
+
+        (ent, idlCtx) => {
+            val req = idlCtx.req
+            val p = last.get()
+
+            if p != null && (p._1 eq req) then p._2
+            else
+                val z = x(ent, idlCtx)
+                last.set(req -> z)
+                z
+        }
+
+    /**
+      * Wraps given entity dependent expression, so it is computed once for the given entity and term context
+      * even if it is used several times in the term.
+      *
+      * @param x Entity dependent expression.
+      */
+    def memoByEvaluation(x: NCIDLStackType): NCIDLStackType =
+        val last = new AtomicReference[(NCIDLEntity, NCIDLContext, NCIDLStackItem)]()
+
+        (ent, idlCtx) => {
+            val p = last.get()
+
+            if p != null && (p._1 eq ent) && (p._2 eq idlCtx) then p._3
+            else
+                val z = x(ent, idlCtx)
+                last.set((ent, idlCtx, z))
+                z
+        }
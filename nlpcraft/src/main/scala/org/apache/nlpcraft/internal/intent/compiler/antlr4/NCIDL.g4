@@ -94,8 +94,8 @@ expr
     | expr op=(EQ | NEQ) expr # eqNeqExpr
     | expr op=(AND | OR) expr # andOrExpr
     | atom # atomExpr
-    | (FUN_NAME | POUND) LPAR paramList? RPAR # callExpr
-    | (FUN_NAME | POUND) # callExpr
+    | (FUN_NAME | POUND | ID) LPAR paramList? RPAR # callExpr // ID is a custom function name.
+    | (FUN_NAME | POUND | ID) # callExpr
     | AT id # varRef
     ;
 vars
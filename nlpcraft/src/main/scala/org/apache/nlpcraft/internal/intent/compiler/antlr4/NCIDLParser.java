@@ -1902,6 +1902,7 @@ public class NCIDLParser extends Parser {
 		public TerminalNode RPAR() { return getToken(NCIDLParser.RPAR, 0); }
 		public TerminalNode FUN_NAME() { return getToken(NCIDLParser.FUN_NAME, 0); }
 		public TerminalNode POUND() { return getToken(NCIDLParser.POUND, 0); }
+		public TerminalNode ID() { return getToken(NCIDLParser.ID, 0); }
 		public ParamListContext paramList() {
 			return getRuleContext(ParamListContext.class,0);
 		}
@@ -2006,7 +2007,7 @@ public class NCIDLParser extends Parser {
 				_prevctx = _localctx;
 				setState(259);
 				_la = _input.LA(1);
-				if ( !(_la==FUN_NAME || _la==POUND) ) {
+				if ( !(((_la) & ~0x3f) == 0 && ((1L << _la) & 562954248388610L) != 0) ) {
 				_errHandler.recoverInline(this);
 				}
 				else {
@@ -2019,7 +2020,7 @@ public class NCIDLParser extends Parser {
 				setState(262);
 				_errHandler.sync(this);
 				_la = _input.LA(1);
-				if (((_la) & ~0x3f) == 0 && ((1L << _la) & 87999597518338L) != 0) {
+				if (((_la) & ~0x3f) == 0 && ((1L << _la) & 650949550939650L) != 0) {
 					{
 					setState(261);
 					paramList(0);
@@ -2037,7 +2038,7 @@ public class NCIDLParser extends Parser {
 				_prevctx = _localctx;
 				setState(265);
 				_la = _input.LA(1);
-				if ( !(_la==FUN_NAME || _la==POUND) ) {
+				if ( !(((_la) & ~0x3f) == 0 && ((1L << _la) & 562954248388610L) != 0) ) {
 				_errHandler.recoverInline(this);
 				}
 				else {
@@ -2881,7 +2882,7 @@ public class NCIDLParser extends Parser {
 		"!\u0001!\u0001!\u0001!\u0001\"\u0001\"\u0001\"\u0000\u0006\u0002\",24"+
 		"8#\u0000\u0002\u0004\u0006\b\n\f\u000e\u0010\u0012\u0014\u0016\u0018\u001a"+
 		"\u001c\u001e \"$&(*,.02468:<>@BD\u0000\u000b\u0002\u0000\u001d\u001d&"+
-		"&\u0002\u0000\u0016\u0016##\u0002\u0000\u0001\u0001  \u0001\u0000)+\u0002"+
+		"&\u0002\u0000\u0016\u0016##\u0003\u0000\u0001\u0001  11\u0001\u0000)+\u0002"+
 		"\u0000##\'\'\u0001\u0000\u000f\u0012\u0001\u0000\r\u000e\u0001\u0000\u0013"+
 		"\u0014\u0001\u0000\t\n\u0001\u0000\')\u0002\u0000\u0001\u000111\u0169"+
 		"\u0000F\u0001\u0000\u0000\u0000\u0002I\u0001\u0000\u0000\u0000\u0004V"+
@@ -22,9 +22,12 @@ import org.apache.nlpcraft.*
 import org.apache.nlpcraft.internal.ascii.NCAsciiTable
 import org.apache.nlpcraft.internal.conversation.NCConversationManager
 import org.apache.nlpcraft.internal.dialogflow.NCDialogFlowManager
-import org.apache.nlpcraft.internal.impl.NCCallbackInput
+import org.apache.nlpcraft.internal.impl.{NCCallbackInput, NCRequestControl, NCRequestTrace}
 import org.apache.nlpcraft.internal.intent.*
+import org.apache.nlpcraft.internal.util.{NCLruCache, NCUtils}
 
+import java.util.concurrent.{CancellationException, ConcurrentHashMap, ForkJoinPool}
+import java.util.concurrent.atomic.AtomicLong
 import java.util.function.Function
 import scala.annotation.targetName
 import scala.collection.mutable
@@ -41,6 +44,9 @@ enum NCIntentSolveType:
   *
   */
 object NCIntentSolverManager:
+    // Maximum number of the cached dialog flow regex checks.
+    private final val FLOW_MATCHES_CACHE_SIZE = 10000
+
     /**
       * Sentence variant & its weight.
       *
@@ -49,11 +55,14 @@ object NCIntentSolverManager:
     private case class IntentSolverVariant(entities: List[NCEntity]) extends Ordered[IntentSolverVariant]:
         private lazy val weights = calcWeight()
 
+        // Entities key, used to order the matches with the same weights.
+        lazy val key: String = entities.map(t => s"${t.getType}${t.getGroups}${t.mkText}").mkString("")
+
         private def calcSparsity(toks: Seq[NCToken]): Int =
             val idxs = toks.map(_.getIndex)
             idxs.zipWithIndex.tail.map { (v, i) => Math.abs(v - idxs(i - 1)) }.sum - idxs.length + 1
 
-        private def calcWeight(): Seq[Int] =
+        private def calcWeight(): Array[Int] =
             val toks: Seq[Seq[NCToken]] = entities.map(_.getTokens.toSeq)
 
             val toksCnt = toks.map(_.size).sum
@@ -61,14 +70,19 @@ object NCIntentSolverManager:
             val totalSparsity = -toks.map(calcSparsity).sum  // Less is better.
 
             // Order is important.
-            Seq(toksCnt, avgToksPerEntity, totalSparsity)
+            Array(toksCnt, avgToksPerEntity, totalSparsity)
 
         override def compare(other: IntentSolverVariant): Int =
-            def compareWeight(weight1: Int, weight2: Int): Option[Int] =
-                val res = Integer.compare(weight1, weight2)
-                Option.when(res != 0)(res)
+            val ws1 = weights
+            val ws2 = other.weights
+            var res = 0
+            var i = 0
+
+            while res == 0 && i < ws1.length do
+                res = Integer.compare(ws1(i), ws2(i))
+                i += 1
 
-            weights.zip(other.weights).flatMap { (w1, w2) => compareWeight(w1, w2) }.to(LazyList).headOption.getOrElse(0)
+            res
 
         override def toString: String = s"${weights.mkString("[", ", ", "]")}"
 
@@ -102,10 +116,14 @@ object NCIntentSolverManager:
     private case class IntentSolverResult(intentId: String, fn: NCCallbackInput => NCResult, groups: List[IntentTermEntities], variant: IntentSolverVariant, variantIdx: Int)
 
     /**
+      * Weight vector of the fixed width. Components which are not set are zeros.
       * NOTE: not thread-safe.
       */
     private class Weight(ws: Int*) extends Ordered[Weight]:
-        private val buf = mutable.ArrayBuffer[Int]() ++ ws
+        private val buf = new Array[Int](Weight.WIDTH)
+        private var size = 0
+
+        ws.foreach(append)
 
         /**
           * Adds given weight to this weight.
@@ -114,11 +132,13 @@ object NCIntentSolverManager:
           */
         @targetName("plusEqual")
         def +=(that: Weight): Weight =
-            val tmp = mutable.ArrayBuffer[Int]()
-            for (i <- 0 until Math.max(buf.size, that.buf.size))
-                tmp.append(norm(i, buf) + norm(i, that.buf))
-            buf.clear()
-            buf ++= tmp
+            var i = 0
+
+            while i < that.size do
+                buf(i) += that.buf(i)
+                i += 1
+
+            if that.size > size then size = that.size
             this
 
         /**
@@ -127,7 +147,10 @@ object NCIntentSolverManager:
           * @param w New weight to append.
           */
         def append(w: Int): Weight =
-            buf.append(w)
+            require(size < Weight.WIDTH)
+
+            buf(size) = w
+            size += 1
             this
 
         /**
@@ -136,7 +159,11 @@ object NCIntentSolverManager:
           * @param w New weight to prepend.
           */
         def prepend(w: Int): Weight =
-            buf.prepend(w)
+            require(size < Weight.WIDTH)
+
+            System.arraycopy(buf, 0, buf, 1, size)
+            buf(0) = w
+            size += 1
             this
 
         /**
@@ -146,37 +173,127 @@ object NCIntentSolverManager:
           * @param w
           */
         def setWeight(idx: Int, w: Int): Unit =
-            buf(idx) = w
+            require(idx < size)
 
-        /**
-          * Gets element at given index or zero if index is out of bounds.
-          *
-          * @param i Index in collection.
-          * @param c Collection.
-          */
-        private def norm(i: Int, c: mutable.ArrayBuffer[Int]): Int = if i < c.size then c(i) else 0
+            buf(idx) = w
 
         /**
           *
           * @param that
           */
         override def compare(that: Weight): Int =
-            def compareWeight(idx: Int): Option[Int] =
-                val res = Integer.compare(norm(idx, buf), norm(idx, that.buf))
-                Option.when(res != 0)(res)
+            val n = Math.max(size, that.size)
+            var res = 0
+            var i = 0
+
+            while res == 0 && i < n do
+                res = Integer.compare(buf(i), that.buf(i))
+                i += 1
+
+            res
 
-            (0 until Math.max(buf.size, that.buf.size)).flatMap(compareWeight).to(LazyList).headOption.getOrElse(0)
+        def toSeq: Seq[Int] = buf.take(size).toSeq
 
-        def toSeq: Seq[Int] = buf.toSeq
+        override def toString: String = buf.take(size).mkString("[", ", ", "]")
 
-        override def toString: String = buf.mkString("[", ", ", "]")
+    /**
+      *
+      */
+    private object Weight:
+        // Intent match weight: non-free words number, followed by the sum of its terms weights, i.e.
+        // predicate match weight (3 components) and term quantifiers weight (3 components).
+        final val WIDTH = 7
 
     /**
       *
-      * @param used
+      * @param idx Entity index within the variant entities (see [[VariantEntities]]), used in the `used` flags.
+      * @param conv Whether this entity is from the conversation.
       * @param entity
       */
-    private case class IntentEntity(var used: Boolean, var conv: Boolean, entity: NCEntity)
+    private case class IntentEntity(idx: Int, conv: Boolean, entity: NCEntity)
+
+    /**
+      * Key of the term predicate result: predicate key (see [[NCIDLTerm.predKey]]) and the entity instance.
+      *
+      * @param pred Predicate key.
+      * @param ent Entity.
+      */
+    private class PredicateKey(val pred: String, val ent: NCEntity):
+        override def hashCode(): Int = 31 * pred.hashCode + System.identityHashCode(ent)
+        override def equals(obj: Any): Boolean =
+            obj match
+                case k: PredicateKey => (k.ent eq ent) && k.pred == pred
+                case _ => false
+
+    /**
+      * Term predicates results of the request, shared by all intents and variants. Only the predicates which results
+      * depend on the entity and the request only are memoized (see [[NCIDLTerm.predKey]]). Thread-safe.
+      */
+    private class PredicateMemo:
+        private val memo = new ConcurrentHashMap[PredicateKey, NCIDLStackItem]()
+        private val hits = new AtomicLong()
+        private val misses = new AtomicLong()
+
+        /**
+          * Gets the term predicate result for given entity, evaluating it if it is not memoized yet.
+          *
+          * @param term Term.
+          * @param ent Entity.
+          * @param eval Predicate evaluation.
+          */
+        def get(term: NCIDLTerm, ent: NCEntity, eval: => NCIDLStackItem): NCIDLStackItem =
+            term.predKey match
+                case Some(pred) =>
+                    val key = PredicateKey(pred, ent)
+                    val z = memo.get(key)
+
+                    if z != null then
+                        hits.incrementAndGet()
+                        z
+                    else
+                        misses.incrementAndGet()
+
+                        val z = eval
+                        memo.put(key, z)
+                        z
+                case None => eval
+
+        override def toString: String = s"[size=${memo.size()}, hits=${hits.get()}, misses=${misses.get()}]"
+
+    /**
+      * Entities of the sentence variant and the conversation which the intents terms are matched against,
+      * indexed by their types. Sentence entities indexes are `0 until sen.size`, conversation entities
+      * indexes follow them. It is built once per variant and shared by all intents solved for this variant.
+      *
+      * @param senEnts Variant entities.
+      * @param getConvEnts Conversation entities getter, it is called only if some term needs them.
+      */
+    private class VariantEntities(val senEnts: List[NCEntity], getConvEnts: () => Seq[NCEntity]):
+        val sen: IndexedSeq[IntentEntity] = senEnts.toIndexedSeq.zipWithIndex.map((e, i) => IntentEntity(i, false, e))
+        lazy val conv: IndexedSeq[IntentEntity] = getConvEnts().toIndexedSeq.zipWithIndex.map((e, i) => IntentEntity(sen.size + i, true, e))
+
+        // Number of the tokens of the variant entities.
+        val senToksCnt: Int = senEnts.map(_.getTokens.size).sum
+
+        private val senTypes = sen.groupBy(_.entity.getType)
+        private lazy val convTypes = conv.groupBy(_.entity.getType)
+
+        /**
+          * Gets entities which can satisfy the term predicate, sentence entities first, each part in its original order.
+          * Entities of other types than the types of the term (see [[NCIDLTerm.entTypes]]) are skipped.
+          *
+          * @param term Term.
+          */
+        def getCandidates(term: NCIDLTerm): Iterator[IntentEntity] =
+            def get(ents: IndexedSeq[IntentEntity], types: Map[String, IndexedSeq[IntentEntity]]): Iterator[IntentEntity] =
+                term.entTypes match
+                    case Some(ts) if ts.sizeIs == 1 => types.getOrElse(ts.head, IndexedSeq.empty).iterator
+                    case Some(ts) => ents.iterator.filter(e => ts.contains(e.entity.getType))
+                    case None => ents.iterator
+
+            val res = get(sen, senTypes)
+
+            if term.conv then res ++ get(conv, convTypes) else res
 
     type ResultData = Either[NCResult, NCMatchedCallback]
 
@@ -237,7 +354,10 @@ object NCIntentSolverManager:
         callback: NCCallbackInput => NCResult, // Callback function.
         variant: IntentSolverVariant, // Variant used for the match.
         variantIdx: Int // Variant index.
-    )
+    ):
+        // Order doesn't make sense here.
+        // It is just to provide deterministic result for the matches with the same weights.
+        lazy val hash: Int = (variant.key, intentMatch.intent.toString).##
 
     /**
       *
@@ -252,45 +372,117 @@ import org.apache.nlpcraft.internal.intent.matcher.NCIntentSolverManager.*
  * Intent solver that finds the best matching intent given user sentence.
  */
 class NCIntentSolverManager(
+    cfg: NCModelConfig,
     dialog: NCDialogFlowManager,
     conv: NCConversationManager,
     intents: Map[NCIDLIntent, NCCallbackInput => NCResult]
 ) extends LazyLogging:
     private final val reqIds = mutable.HashMap.empty[UserModelKey, String]
+    // Pool for parallel intent solving, `null` if this mode is disabled.
+    private val pool: ForkJoinPool = if cfg.isParallelIntentSolving then new ForkJoinPool() else null
+    // Last dialog flow regex check for each user and intent: dialog flow version -> match result.
+    private val flowMatches = new NCLruCache[(String, NCIDLIntent), (Long, Boolean)](FLOW_MATCHES_CACHE_SIZE)
+
+    // Intents order, used to keep candidates in the order of the intents map.
+    private val intentsPos: Map[NCIDLIntent, Int] = intents.keys.zipWithIndex.toMap
+    // Intents which can match any variant.
+    private val freeIntents: Seq[NCIDLIntent] = intents.keys.filter(_.requiredEntTypes.isEmpty).toSeq
+    // Inverted index: entity type -> intents which mandatory terms can match entity of this type.
+    private val typesIdx: Map[String, Seq[NCIDLIntent]] =
+        intents.keys.toSeq.
+            flatMap(i => i.requiredEntTypes.flatten.distinct.map(_ -> i)).
+            groupBy(_._1).
+            map { (typ, pairs) => typ -> pairs.map(_._2) }
 
     /**
-     * Main entry point for intent engine.
+      * Gets intents which prerequisites are satisfied by given variant, i.e. for each mandatory term with known
+      * entity types the variant contains at least one entity of these types.
+      *
+      * @param vrn Variant.
+      * @param intents Intents.
+      */
+    private def getCandidates(
+        vrn: NCVariant, intents: Map[NCIDLIntent, NCCallbackInput => NCResult]
+    ): Seq[(NCIDLIntent, NCCallbackInput => NCResult)] =
+        val types = vrn.getEntities.map(_.getType).toSet
+        val found = types.toSeq.flatMap(typesIdx.getOrElse(_, Seq.empty)).distinct.
+            filter(_.requiredEntTypes.forall(_.exists(types.contains)))
+
+        (freeIntents ++ found).
+            filter(intents.contains).
+            sortBy(i => intentsPos.getOrElse(i, Int.MaxValue)).
+            map(i => i -> intents(i))
+
+    /**
+     * Main entry point for intent engine. Variants are processed lazily, best first, in groups of variants with
+     * the same number of tokens. Intent match weight starts with this number (see `nonFreeWordNum`), so matches
+     * of each group are better than matches of all next groups, and next group is processed only if the
+     * previous groups results are not enough (i.e. all of them were skipped).
      *
       * @param mdl Model.
      * @param ctx Query context.
      * @param intents Intents to match for.
+     * @param ctrl Request control.
+     * @return Sorted best first matches.
      */
-    private def solveIntents(mdl: NCModel, ctx: NCContext, intents: Map[NCIDLIntent, NCCallbackInput => NCResult]): List[IntentSolverResult] =
-        dialog.ack(ctx.getRequest.getUserId)
+    private def solveIntents(
+        mdl: NCModel, ctx: NCContext, intents: Map[NCIDLIntent, NCCallbackInput => NCResult], ctrl: NCRequestControl
+    ): LazyList[IntentSolverResult] =
+        if NCRequestTrace.isSampled(ctx.getModelConfig, ctx.getRequest) then dialog.ack(ctx.getRequest.getUserId)
+
+        val grps =
+            ctx.getVariants.zipWithIndex.
+                groupBy { (v, _) => v.getEntities.map(_.getTokens.size).sum }.
+                toSeq.sortBy { (toksCnt, _) => -toksCnt }.
+                map { (_, vrns) => vrns.sortBy { (_, vrnIdx) => vrnIdx } }
+
+        // Shared by all variants groups.
+        val memo = new PredicateMemo()
+
+        def solve(grps: Seq[Seq[(NCVariant, Int)]]): LazyList[IntentSolverResult] =
+            if grps.isEmpty then
+                LazyList.empty
+            else
+                val res =
+                    try solveVariants(ctx, grps.head, intents, ctrl, memo)
+                    catch
+                        case e: CancellationException => throw e
+                        case e: NCTimeoutRejection => throw e
+                        case e: Exception => throw new NCRejection("Processing failed due to unexpected error.", e)
 
-        val matches = mutable.ArrayBuffer.empty[MatchHolder]
+                res.to(LazyList) #::: solve(grps.tail)
 
-        // Find all matches across all intents and sentence variants.
-        for (
-            (vrn, vrnIdx) <- ctx.getVariants.zipWithIndex;
-            ents = vrn.getEntities;
-            varEntsGroups = ents.filter(t => t.getGroups != null && t.getGroups.nonEmpty).map(_.getGroups);
-            (intent, callback) <- intents
-        )
-            val convEnts: Seq[IntentEntity] =
-                if intent.terms.exists(_.conv) then
-                    // We do not mix tokens with same group from the conversation and given sentence.
-                    ctx.getConversation.getStm.
-                        map(ent => ent -> (if ent.getGroups == null then Set.empty else ent.getGroups)).
-                        filter { (_, entGroups)  => !varEntsGroups.exists(_.subsetOf(entGroups)) }.
-                        map { (e, _) => IntentEntity(used = false, conv = true, e) }
-                else
-                    Seq.empty
+        solve(grps)
+
+    /**
+      * Finds and sorts all matches across all intents and given sentence variants.
+      *
+      * @param ctx Query context.
+      * @param vrns Variants with their indexes.
+      * @param intents Intents to match for.
+      * @param ctrl Request control.
+      * @param memo Term predicates results of the request.
+      */
+    private def solveVariants(
+        ctx: NCContext,
+        vrns: Seq[(NCVariant, Int)],
+        intents: Map[NCIDLIntent, NCCallbackInput => NCResult],
+        ctrl: NCRequestControl,
+        memo: PredicateMemo
+    ): List[IntentSolverResult] =
+        val pairs =
+            for (
+                (vrn, vrnIdx) <- vrns;
+                vrnEnts = mkVariantEntities(ctx, vrn);
+                (intent, callback) <- getCandidates(vrn, intents)
+            )
+                yield () => solvePair(ctx, vrnEnts, vrnIdx, intent, callback, ctrl, memo)
+
+        // Matches are collected in the (variant, intent) order in both modes, so the sorting below gives the same result.
+        val matches = (if pool != null && pairs.sizeIs > 1 then NCUtils.execParResults(pairs)(pool) else pairs.map(_())).flatten
 
-            // Solve intent in isolation.
-            solveIntent(ctx, intent, ents.map(IntentEntity(false, false, _)), convEnts, vrnIdx) match
-                case Some(intentMatch) => matches += MatchHolder(intentMatch, callback, IntentSolverVariant(vrn.getEntities), vrnIdx)
-                case None => // No-op.
+        if NCRequestTrace.isDebug(logger, ctx.getModelConfig, ctx.getRequest) then
+            logger.debug(s"Term predicates results cache ${vrns.map(_._2 + 1).mkString("(variants #", ", #", ")")}: $memo")
 
         val sorted = matches.sortWith((m1: MatchHolder, m2: MatchHolder) =>
             // 1. First with maximum weight.
@@ -309,24 +501,11 @@ class NCIntentSolverManager(
                         case x2 =>
                             require(x2 == 0)
 
-                            def calcHash(m: MatchHolder): Int =
-                                val variantPart =
-                                    m.variant.
-                                        entities.
-                                        map(t => s"${t.getType}${t.getGroups}${t.mkText}").
-                                        mkString("")
-
-                                val intentPart = m.intentMatch.intent.toString
-
-                                (variantPart, intentPart).##
-
-                            // Order doesn't make sense here.
-                            // It is just to provide deterministic result for the matches with the same weights.
-                            calcHash(m1) > calcHash(m2)
+                            m1.hash > m2.hash
             }
         )
 
-        logMatches(sorted)
+        if sorted.nonEmpty && NCRequestTrace.isInfo(logger, ctx.getModelConfig, ctx.getRequest) then logMatches(sorted)
 
         sorted.map(m =>
             IntentSolverResult(
@@ -338,51 +517,92 @@ class NCIntentSolverManager(
             )
         ).toList
 
+    /**
+      * Prepares entities of given variant for the intents solving.
+      *
+      * @param ctx Query context.
+      * @param vrn Variant.
+      */
+    private def mkVariantEntities(ctx: NCContext, vrn: NCVariant): VariantEntities =
+        val varEntsGroups = vrn.getEntities.filter(t => t.getGroups != null && t.getGroups.nonEmpty).map(_.getGroups)
+
+        VariantEntities(
+            vrn.getEntities,
+            () =>
+                // We do not mix tokens with same group from the conversation and given sentence.
+                ctx.getConversation.getStm.
+                    map(ent => ent -> (if ent.getGroups == null then Set.empty else ent.getGroups)).
+                    filter { (_, entGroups)  => !varEntsGroups.exists(_.subsetOf(entGroups)) }.
+                    map { (e, _) => e }
+        )
+
+    /**
+      * Solves given intent against given variant.
+      *
+      * @param ctx Query context.
+      * @param vrnEnts Variant entities.
+      * @param vrnIdx Variant index.
+      * @param intent Intent.
+      * @param callback Intent callback.
+      * @param ctrl Request control.
+      * @param memo Term predicates results of the request.
+      */
+    private def solvePair(
+        ctx: NCContext,
+        vrnEnts: VariantEntities,
+        vrnIdx: Int,
+        intent: NCIDLIntent,
+        callback: NCCallbackInput => NCResult,
+        ctrl: NCRequestControl,
+        memo: PredicateMemo
+    ): Option[MatchHolder] =
+        ctrl.check()
+
+        // Solve intent in isolation.
+        solveIntent(ctx, intent, vrnEnts, vrnIdx, ctrl, memo).
+            map(intentMatch => MatchHolder(intentMatch, callback, IntentSolverVariant(vrnEnts.senEnts), vrnIdx))
+
     /**
       *
       * @param matches
       */
     private def logMatches(matches: ArrayBuffer[MatchHolder]): Unit =
-        if matches.nonEmpty then
-            val tbl = NCAsciiTable("Variant", "Intent", "Term Entities", "Intent Match Weight")
-
-            for (m <- matches)
-                val im = m.intentMatch
-                val w = im.weight
-                val ents = mutable.ListBuffer.empty[String]
-
-                ents += s"intent=${im.intent.id}"
-                var grpIdx = 0
-
-                for (grp <- im.entityGroups)
-                    ents += s"  ${grp.term.toString}"
-                    grpIdx += 1
-
-                    if grp.usedEntities.nonEmpty then
-                        var entIdx = 0
-                        for (e <- grp.usedEntities)
-                            val conv = if e.conv then "(conv) " else ""
-                            ents += s"    #$entIdx: $conv${e.entity.getType}(${e.entity.mkText})"
-                            entIdx += 1
-                    else
-                        ents += "    <empty>"
-
-                if m == matches.head then
-                    tbl += (
-                        Seq(s"#${m.variantIdx + 1}", "<|best match|>"), Seq(im.intent.id, "<|best match|>"), ents, w
-                    )
+        val tbl = NCAsciiTable("Variant", "Intent", "Term Entities", "Intent Match Weight")
+
+        for (m <- matches)
+            val im = m.intentMatch
+            val w = im.weight
+            val ents = mutable.ListBuffer.empty[String]
+
+            ents += s"intent=${im.intent.id}"
+            var grpIdx = 0
+
+            for (grp <- im.entityGroups)
+                ents += s"  ${grp.term.toString}"
+                grpIdx += 1
+
+                if grp.usedEntities.nonEmpty then
+                    var entIdx = 0
+                    for (e <- grp.usedEntities)
+                        val conv = if e.conv then "(conv) " else ""
+                        ents += s"    #$entIdx: $conv${e.entity.getType}(${e.entity.mkText})"
+                        entIdx += 1
                 else
-                    tbl += (
-                        s"#${m.variantIdx + 1}", im.intent.id, ents, w
-                    )
+                    ents += "    <empty>"
 
-            tbl.info(
-                logger,
-                s"Found ${matches.size} matching ${if matches.size > 1 then "intents"else "intent"} (sorted best to worst):".?
-            )
-        else
-            logger.info(s"No matching intent found:")
-            logger.info(s"  +-- Turn on DEBUG log level to see more details.")
+            if m == matches.head then
+                tbl += (
+                    Seq(s"#${m.variantIdx + 1}", "<|best match|>"), Seq(im.intent.id, "<|best match|>"), ents, w
+                )
+            else
+                tbl += (
+                    s"#${m.variantIdx + 1}", im.intent.id, ents, w
+                )
+
+        tbl.info(
+            logger,
+            s"Found ${matches.size} matching ${if matches.size > 1 then "intents"else "intent"} (sorted best to worst):".?
+        )
 
     /**
       *
@@ -407,32 +627,38 @@ class NCIntentSolverManager(
     /**
      *
      * @param intent
-     * @param senEnts
-     * @param convEnts
+     * @param vrnEnts
+     * @param ctrl
+     * @param memo
      */
     private def solveIntent(
-        ctx: NCContext, intent: NCIDLIntent, senEnts: Seq[IntentEntity], convEnts: Seq[IntentEntity], varIdx: Int
+        ctx: NCContext, intent: NCIDLIntent, vrnEnts: VariantEntities, varIdx: Int, ctrl: NCRequestControl, memo: PredicateMemo
     ): Option[IntentMatchHolder] =
         val intentId = intent.id
         val opts = intent.options
-        val flow = dialog.getDialogFlow(ctx.getRequest.getUserId)
         val varStr = s"(variant #${varIdx + 1})"
 
         // Check dialog flow regex first, if any.
         val flowMatched: Boolean =
             intent.flowRegex match
                 case Some(regex) =>
-                    val flowStr = flow.map(_.getIntentMatch.getIntentId).mkString(" ")
+                    // The same for all variants and requests until the user dialog flow is changed.
+                    val usrId = ctx.getRequest.getUserId
+                    val key = usrId -> intent
 
-                    def process(matched: Boolean): Boolean =
-                        val s = if matched then "matched" else "did not match"
-                        logger.info(s"Intent '$intentId' $s regex dialog flow $varStr:")
-                        logger.info(s"  |-- ${"Intent IDs  :"} $flowStr")
-                        logger.info(s"  +-- ${"Match regex :"} ${regex.toString}")
+                    flowMatches.get(key) match
+                        case (ver, matched) if ver == dialog.getDialogFlowVersion(usrId) => matched
+                        case _ =>
+                            val (ver, flowStr) = dialog.getVersionedDialogFlowIntentIds(usrId)
+                            val matched = regex.matcher(flowStr).find(0)
 
-                        matched
+                            if NCRequestTrace.isDebug(logger, ctx.getModelConfig, ctx.getRequest) then
+                                val s = if matched then "matched" else "did not match"
+                                logger.debug(s"Intent '$intentId' $s regex dialog flow [regex=$regex, intentIds=$flowStr]")
 
-                    process(regex.matcher(flowStr).find(0))
+                            flowMatches.put(key, ver -> matched)
+
+                            matched
                 case None => true
 
         if flowMatched then
@@ -442,7 +668,9 @@ class NCIntentSolverManager(
             var lastTermMatch: TermMatch = null
             val sess = ctx.getConversation.getData // Conversation metadata (shared across all terms).
             val convMeta = sess.keysSet.map(k => k -> sess(k).asInstanceOf[Object]).toMap
-            val ents = senEnts.map(_.entity)
+            val ents = vrnEnts.senEnts
+            // Entities used by the matched terms.
+            val used = mutable.BitSet.empty
 
             // Check terms.
             for (term <- intent.terms if !abort)
@@ -456,7 +684,7 @@ class NCIntentSolverManager(
                     vars = mutable.HashMap.empty[String, NCIDLFunction] ++ term.decls
                 )
 
-                solveTerm(term, idlCtx, senEnts, if term.conv then convEnts else Seq.empty) match
+                solveTerm(term, idlCtx, vrnEnts, used, ctrl, memo) match
                     case Some(termMatch) =>
                         if opts.ordered && lastTermMatch != null && !termMatch.after(lastTermMatch) then
                             abort = true
@@ -467,7 +695,7 @@ class NCIntentSolverManager(
                             intentGrps += TermEntitiesGroup(term, termMatch.usedEntities)
                             lastTermMatch = termMatch
 
-                            logMatch(intent, term, termMatch)
+                            if NCRequestTrace.isDebug(logger, ctx.getModelConfig, ctx.getRequest) then logMatch(intent, term, termMatch)
                     case None =>
                         // Term is missing. Stop further processing for this intent. This intent cannot be matched.
                         logger.debug(s"Intent '$intentId' did not match because of unmatched term '$term' $varStr.")
@@ -477,12 +705,12 @@ class NCIntentSolverManager(
             if abort then
                 None
             else
-                val usedSenEnts = senEnts.filter(_.used)
-                val usedConvEnts = convEnts.filter(_.used)
+                val usedSenEnts = vrnEnts.sen.filter(e => used.contains(e.idx))
+                val usedConvEnts = used.exists(_ >= vrnEnts.sen.size)
                 val usedToks = usedSenEnts.flatMap(_.entity.getTokens)
                 val unusedToks = ctx.getTokens.filter(p => !usedToks.contains(p))
 
-                if !opts.allowStmEntityOnly && usedSenEnts.isEmpty && usedConvEnts.nonEmpty then
+                if !opts.allowStmEntityOnly && usedSenEnts.isEmpty && usedConvEnts then
                     logger.info(
                         s"""
                            |Intent '$intentId' did not match because all its matched tokens came from STM $varStr.
@@ -500,13 +728,13 @@ class NCIntentSolverManager(
                     )
                     None
                 else
-                    if usedSenEnts.isEmpty && usedConvEnts.isEmpty then
+                    if usedSenEnts.isEmpty && !usedConvEnts then
                         logger.warn(s"Intent '$intentId' matched but no entities were used $varStr.")
 
                     // Number of remaining (unused) non-free words in the sentence is a measure of exactness of the match.
                     // The match is exact when all non-free words are used in that match.
                     // Negate to make sure the bigger (smaller negative number) is better.
-                    val nonFreeWordNum = -(ctx.getTokens.size - senEnts.map(_.entity.getTokens.size).sum)
+                    val nonFreeWordNum = -(ctx.getTokens.size - vrnEnts.senToksCnt)
 
                     intentW.prepend(nonFreeWordNum)
 
@@ -546,20 +774,24 @@ class NCIntentSolverManager(
      *
      * @param term
      * @param idlCtx
-     * @param convEnts
-     * @param senEnts
+     * @param vrnEnts
+     * @param used
+     * @param ctrl
+     * @param memo
      */
     private def solveTerm(
         term: NCIDLTerm,
         idlCtx: NCIDLContext,
-        senEnts: Seq[IntentEntity],
-        convEnts: Seq[IntentEntity]
+        vrnEnts: VariantEntities,
+        used: mutable.BitSet,
+        ctrl: NCRequestControl,
+        memo: PredicateMemo
     ): Option[TermMatch] =
-        if senEnts.isEmpty && convEnts.isEmpty then
+        if vrnEnts.sen.isEmpty && (!term.conv || vrnEnts.conv.isEmpty) then
             logger.warn(s"No entities available to match on for the term '$term'.")
 
         try
-            solvePredicate(term, idlCtx, senEnts, convEnts) match
+            solvePredicate(term, idlCtx, vrnEnts, used, ctrl, memo) match
                 case Some(pm) =>
                     Option(
                         TermMatch(
@@ -579,21 +811,28 @@ class NCIntentSolverManager(
                     )
                 // Term not found at all.
                 case None => None
-        catch case e: Exception => E(s"Runtime error processing IDL term: $term", e)
+        catch
+            // Request cancellation and timeout are passed as is.
+            case e: (CancellationException | NCTimeoutRejection) => throw e
+            case e: Exception => E(s"Runtime error processing IDL term: $term", e)
 
     /**
      * Solves term's predicate.
      *
      * @param term
      * @param idlCtx
-     * @param senEnts
-     * @param convEnts
+     * @param vrnEnts
+     * @param used
+     * @param ctrl Request control checked before each predicate evaluation.
+     * @param memo
      */
     private def solvePredicate(
         term: NCIDLTerm,
         idlCtx: NCIDLContext,
-        senEnts: Seq[IntentEntity],
-        convEnts: Seq[IntentEntity]
+        vrnEnts: VariantEntities,
+        used: mutable.BitSet,
+        ctrl: NCRequestControl,
+        memo: PredicateMemo
     ): Option[PredicateMatch] =
         // Algorithm is "hungry", i.e. it will fetch all entities satisfying item's predicate
         // in entire sentence even if these entities are separated by other already used entities
@@ -603,18 +842,27 @@ class NCIntentSolverManager(
         var matchesCnt = 0
 
         // Collect to the 'max' from sentence & conversation, if possible.
-        for (ents <- Seq(senEnts, convEnts); ent <- ents.filter(!_.used) if usedEnts.lengthCompare(term.max) < 0)
-            val NCIDLStackItem(res, uses) = term.pred.apply(NCIDLEntity(ent.entity, matchesCnt), idlCtx)
+        // Only entities of the term types are checked, others cannot satisfy its predicate.
+        val cands = vrnEnts.getCandidates(term)
+
+        while cands.hasNext && usedEnts.lengthCompare(term.max) < 0 do
+            val ent = cands.next()
+
+            if !used.contains(ent.idx) then
+                ctrl.check()
 
-            res match
-                case b: java.lang.Boolean =>
-                    if b then
-                        matchesCnt += 1
-                        if uses > 0 then
-                            usesSum += uses
-                            usedEnts += ent
+                val NCIDLStackItem(res, uses) =
+                    memo.get(term, ent.entity, term.pred.apply(NCIDLEntity(ent.entity, matchesCnt), idlCtx))
 
-                case _ => throw new NCException(s"Predicate returned non-boolean result: $res")
+                res match
+                    case b: java.lang.Boolean =>
+                        if b then
+                            matchesCnt += 1
+                            if uses > 0 then
+                                usesSum += uses
+                                usedEnts += ent
+
+                    case _ => throw new NCException(s"Predicate returned non-boolean result: $res")
 
         // We couldn't collect even 'min' matches.
         if matchesCnt < term.min then
@@ -628,18 +876,16 @@ class NCIntentSolverManager(
         // We've found some matches (and min > 0).
         else
             // Number of entities from the current sentence.
-            val senTokNum = usedEnts.count(e => !convEnts.contains(e))
+            val senTokNum = usedEnts.count(!_.conv)
 
             // Sum of conversation depths for each entities from the conversation.
             // Negated to make sure that bigger (smaller negative number) is better.
-            def getConversationDepth(e: IntentEntity): Option[Int] =
-                val depth = convEnts.indexOf(e)
-                Option.when(depth >= 0)(depth + 1)
+            def getConversationDepth(e: IntentEntity): Int = e.idx - vrnEnts.sen.size + 1
 
-            val convDepthsSum = -usedEnts.flatMap(getConversationDepth).sum
+            val convDepthsSum = -usedEnts.filter(_.conv).map(getConversationDepth).sum
 
             // Mark found entities as used.
-            for (e <- usedEnts) e.used = true
+            for (e <- usedEnts) used += e.idx
 
             PredicateMatch(usedEnts.toList, new Weight(senTokNum, convDepthsSum, usesSum)).?
 
@@ -649,17 +895,22 @@ class NCIntentSolverManager(
       * @param ctx
       * @param typ
       * @param key
+      * @param ctrl
       */
-    private def solveIteration(mdl: NCModel, ctx: NCContext, typ: NCIntentSolveType, key: UserModelKey): Option[IterationResult] =
+    private def solveIteration(
+        mdl: NCModel, ctx: NCContext, typ: NCIntentSolveType, key: UserModelKey, ctrl: NCRequestControl
+    ): Option[IterationResult] =
         require(intents.nonEmpty)
 
         val req = ctx.getRequest
 
-        val intentResults =
-            try solveIntents(mdl, ctx, intents)
-            catch case e: Exception => throw new NCRejection("Processing failed due to unexpected error.", e)
+        val intentResults = solveIntents(mdl, ctx, intents, ctrl)
 
-        if intentResults.isEmpty then throw new NCRejection("No matching intent found.")
+        if intentResults.isEmpty then
+            logger.info(s"No matching intent found:")
+            logger.info(s"  +-- Turn on DEBUG log level to see more details.")
+
+            throw new NCRejection("No matching intent found.")
 
         object Loop:
             private var data: Option[IterationResult] = _
@@ -672,6 +923,8 @@ class NCIntentSolverManager(
                 data
 
         for (intentRes <- intentResults.filter(_ != null) if Loop.hasNext)
+            ctrl.check()
+
             def mkIntentMatch(arg: List[List[NCEntity]]): NCIntentMatch =
                 new NCIntentMatch:
                     override val getIntentId: String = intentRes.intentId
@@ -753,8 +1006,9 @@ class NCIntentSolverManager(
       * @param mdl
       * @param ctx
       * @param typ
+      * @param ctrl Request control checked between matching steps.
       */
-    def solve(mdl: NCModel, ctx: NCContext, typ: NCIntentSolveType): ResultData =
+    def solve(mdl: NCModel, ctx: NCContext, typ: NCIntentSolveType, ctrl: NCRequestControl = NCRequestControl.NONE): ResultData =
         import NCIntentSolveType.REGULAR
 
         val key = UserModelKey(ctx.getRequest.getUserId, mdl.getConfig.getId)
@@ -774,7 +1028,7 @@ class NCIntentSolverManager(
 
                 try
                     while (loopRes == null)
-                        solveIteration(mdl, ctx, typ, key) match
+                        solveIteration(mdl, ctx, typ, key, ctrl) match
                             case Some(iterRes) => loopRes = iterRes
                             case None => // No-op.
 
@@ -786,6 +1040,8 @@ class NCIntentSolverManager(
 
                         case _ => loopRes.result
                 catch
+                    // Cancellation is not an error - it is propagated as is.
+                    case e: CancellationException => throw e
                     case e: NCRejection =>
                         typ match
                             case REGULAR =>
@@ -807,4 +1063,6 @@ class NCIntentSolverManager(
     /**
       *
       */
-    def close(): Unit = reqIds.clear()
\ No newline at end of file
+    def close(): Unit =
+        NCUtils.shutdownPool(pool)
+        reqIds.clear()
\ No newline at end of file
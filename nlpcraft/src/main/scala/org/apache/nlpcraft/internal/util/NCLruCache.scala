@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.util
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import scala.jdk.CollectionConverters.*
+
+/**
+  * Bounded concurrent cache which evicts the least recently used entries. Lookups don't take locks and don't change
+  * the cache structure, they only update the last access time of the found entry. When the cache size exceeds its
+  * maximum size, the thread which added the entry evicts the least recently used entries, while other threads keep
+  * using the cache. Thread safe.
+  *
+  * @param maxSize Maximum number of the cached entries.
+  */
+class NCLruCache[K, V <: AnyRef](maxSize: Int):
+    require(maxSize >= 0, "Cache size cannot be negative.")
+
+    /**
+      *
+      * @param value
+      * @param used Last access time.
+      */
+    private class Entry(val value: V, @volatile var used: Long)
+
+    private val map = new ConcurrentHashMap[K, Entry]()
+    private val evicting = new AtomicBoolean(false)
+    // Size the cache is shrunk to by the eviction, so the eviction isn't done on each addition.
+    private val evictedSize = maxSize - maxSize / 10
+
+    /**
+      * Gets cached value.
+      *
+      * @param key Key.
+      * @return Cached value or `null` if there isn't any.
+      */
+    def get(key: K): V =
+        val e = map.get(key)
+
+        if e == null then null.asInstanceOf[V]
+        else
+            e.used = System.nanoTime()
+            e.value
+
+    /**
+      * Adds value to the cache.
+      *
+      * @param key Key.
+      * @param value Value.
+      */
+    def put(key: K, value: V): Unit =
+        if maxSize > 0 then
+            map.put(key, new Entry(value, System.nanoTime()))
+
+            // Size is checked again after the eviction, because other threads could add their entries meanwhile.
+            while (map.size() > maxSize && evicting.compareAndSet(false, true))
+                try evict()
+                finally evicting.set(false)
+
+    /**
+      * Removes the least recently used entries.
+      */
+    private def evict(): Unit =
+        val entries = map.entrySet().asScala.toSeq.map(e => (e.getKey, e.getValue, e.getValue.used))
+
+        // Entries used after the snapshot are not removed.
+        for ((k, e, used) <- entries.sortBy(_._3).take(entries.size - evictedSize) if e.used == used) map.remove(k, e)
+
+    /**
+      * Gets number of the cached entries.
+      */
+    def size: Int = map.size()
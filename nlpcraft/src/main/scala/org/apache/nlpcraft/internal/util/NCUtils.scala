@@ -24,7 +24,7 @@ import com.google.gson.*
 import java.io.*
 import java.net.*
 import java.time.{ZoneId, Instant, ZonedDateTime}
-import java.util.concurrent.{CopyOnWriteArrayList, ExecutorService, TimeUnit}
+import java.util.concurrent.{CompletableFuture, CompletionException, CopyOnWriteArrayList, Executor, ExecutorService, TimeUnit}
 import java.util.regex.Pattern
 import java.util.zip.*
 import java.util.{Random, TimeZone}
@@ -444,6 +444,22 @@ object NCUtils extends LazyLogging:
             errs.forEach(e => logger.error("Parallel execution error.", e))
             E("Parallel execution failed - see previous error log.")
 
+    /**
+      * Executes given bodies in parallel by given executor and waits for all of them. Unlike
+      * [[execPar()]] method, the first error (in the order of the bodies) is rethrown as is.
+      *
+      * @param bodies Bodies to execute.
+      * @param exec Executor.
+      * @return Results in the order of the given bodies.
+      */
+    def execParResults[T](bodies: Seq[() => T])(exec: Executor): List[T] =
+        val futs = bodies.map(body => CompletableFuture.supplyAsync(() => body(), exec))
+
+        futs.map(f =>
+            try f.join()
+            catch case e: CompletionException => throw e.getCause
+        ).toList
+
     /**
       * Shuts down executor service and waits for its finish.
       *
@@ -42,6 +42,9 @@ import NCBracketsTokenEnricher.*
   */
 //noinspection DuplicatedCode,ScalaWeakerAccess
 class NCBracketsTokenEnricher extends NCTokenEnricher with LazyLogging:
+    /** @inheritdoc */
+    override val getProducedTokenProperties: Set[String] = Set("brackets")
+
     /** @inheritdoc */
     override def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit =
         val stack = new java.util.Stack[String]()
@@ -48,6 +48,12 @@ class NCDictionaryTokenEnricher(dictRes: String) extends NCTokenEnricher with La
 
     private def init(): Unit = dict = U.readLines(res = dictRes, filterText = true, convert = _.toLowerCase, log = logger).toSet
 
+    /** @inheritdoc */
+    override val getRequiredTokenProperties: Set[String] = Set("lemma")
+
+    /** @inheritdoc */
+    override val getProducedTokenProperties: Set[String] = Set("dict")
+
     /** @inheritdoc */
     override def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit =
         toks.foreach(t => t.put("dict", dict.contains(U.getProperty(t, "lemma"))))
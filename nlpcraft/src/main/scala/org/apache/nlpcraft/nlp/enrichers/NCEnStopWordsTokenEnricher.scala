@@ -208,9 +208,9 @@ class NCEnStopWordsTokenEnricher(
 
     private case class TokenExtra(lemma: String, stemTxt: String, stemLemma: String)
     private object TokenExtra:
-        def apply(t: NCToken): TokenExtra =
+        def apply(req: NCRequest, t: NCToken): TokenExtra =
             val lemma = getLemma(t)
-            new TokenExtra(lemma, getStem(t.getText), getStem(lemma))
+            new TokenExtra(lemma, NCRequestStems.stem(req, stemmer, t.getText), NCRequestStems.stem(req, stemmer, lemma))
     init()
 
     private def getStem(s: String): String = stemmer.stem(s.toLowerCase)
@@ -533,6 +533,12 @@ class NCEnStopWordsTokenEnricher(
 
         processCommonStops0(ns, extraToks)
 
+    /** @inheritdoc */
+    override val getRequiredTokenProperties: Set[String] = Set("lemma", "pos")
+
+    /** @inheritdoc */
+    override val getProducedTokenProperties: Set[String] = Set("stopword")
+
     /** @inheritdoc */
     override def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit =
         // stopword and exceptions caches for this sentence.
@@ -546,7 +552,7 @@ class NCEnStopWordsTokenEnricher(
 
         val extraToks =
             scala.collection.mutable.LinkedHashMap.empty[NCToken, TokenExtra] ++=
-                toks.map(t => t -> TokenExtra(t))
+                toks.map(t => t -> TokenExtra(req, t))
 
         for ((tok, extra) <- extraToks)
             val idx = tok.getIndex
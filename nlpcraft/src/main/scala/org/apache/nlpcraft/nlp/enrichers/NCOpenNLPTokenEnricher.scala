@@ -72,6 +72,9 @@ class NCOpenNLPTokenEnricher(posMdlRes: String = null, lemmaDicRes: String = nul
             )
         )(ExecutionContext.Implicits.global)
 
+    /** @inheritdoc */
+    override val getProducedTokenProperties: Set[String] = Set("pos", "lemma")
+
     /** @inheritdoc */
     override def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit =
         val txts = toks.map(_.getText).toArray
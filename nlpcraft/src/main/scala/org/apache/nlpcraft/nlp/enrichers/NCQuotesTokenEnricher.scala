@@ -50,6 +50,9 @@ import NCQuotesTokenEnricher.*
 //noinspection ScalaWeakerAccess
 class NCQuotesTokenEnricher extends NCTokenEnricher with LazyLogging:
     //noinspection DuplicatedCode
+    /** @inheritdoc */
+    override val getProducedTokenProperties: Set[String] = Set("quoted")
+
     /** @inheritdoc */
     override def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit =
         def mark(get: NCToken => Boolean): Unit = for (t <- toks) t.put("quoted", get(t))
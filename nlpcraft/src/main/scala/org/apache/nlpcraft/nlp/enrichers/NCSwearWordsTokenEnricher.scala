@@ -20,7 +20,7 @@ package org.apache.nlpcraft.nlp.enrichers
 import com.typesafe.scalalogging.LazyLogging
 import org.apache.nlpcraft.*
 import org.apache.nlpcraft.internal.util.NCUtils
-import org.apache.nlpcraft.nlp.stemmer.NCStemmer
+import org.apache.nlpcraft.nlp.stemmer.{NCRequestStems, NCStemmer}
 
 import java.io.*
 import java.util.Objects
@@ -52,7 +52,10 @@ class NCSwearWordsTokenEnricher(dictRes: String, stemmer: NCStemmer) extends NCT
     private def init(): Unit =
         swearWords = NCUtils.readLines(res = dictRes, convert = s => stemmer.stem(s.toLowerCase), filterText = true, log = logger).toSet
 
+    /** @inheritdoc */
+    override val getProducedTokenProperties: Set[String] = Set("swear")
+
     /** @inheritdoc */
     override def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit =
-        toks.foreach(t => t.put("swear", swearWords.contains(stemmer.stem(t.getText.toLowerCase))))
+        toks.foreach(t => t.put("swear", swearWords.contains(NCRequestStems.stem(req, stemmer, t.getText))))
 
@@ -21,7 +21,7 @@ import com.typesafe.scalalogging.LazyLogging
 import org.apache.nlpcraft.*
 import org.apache.nlpcraft.internal.makro.NCMacroParser
 import org.apache.nlpcraft.internal.util.NCUtils
-import org.apache.nlpcraft.nlp.stemmer.NCStemmer
+import org.apache.nlpcraft.nlp.stemmer.{NCRequestStems, NCStemmer}
 import org.apache.nlpcraft.nlp.parsers.*
 import org.apache.nlpcraft.nlp.parsers.impl.*
 
@@ -29,7 +29,6 @@ import java.io.*
 import java.util
 import java.util.Objects
 import java.util.regex.*
-import scala.annotation.tailrec
 import scala.collection.mutable
 
 /**
@@ -48,77 +47,80 @@ private object NCSemanticEntityParser:
       */
     private def isStopWord(t: NCToken): Boolean = t.get[Boolean]("stopword").getOrElse(false)
 
+    /**
+      * Options of the skipped positions for the stopwords run. Run of more than two stopwords is skipped entirely or
+      * not skipped at all, otherwise any its subset can be skipped.
+      *
+      * @param run Positions of the consecutive stopwords.
+      */
+    private def getRunSkips(run: List[Int]): Seq[List[Int]] =
+        if run.sizeIs > 2 then Seq(List.empty, run) else Range.inclusive(0, run.size).flatMap(run.combinations)
+
+    /**
+      * Extends skipped positions sets by the stopwords run options, the sets with too many positions are dropped.
+      *
+      * @param skips Skipped positions sets.
+      * @param run Positions of the consecutive stopwords.
+      * @param maxSkip Maximum number of the skipped positions.
+      */
+    private def addRun(skips: List[List[Int]], run: List[Int], maxSkip: Int): List[List[Int]] =
+        if run.isEmpty then skips
+        else
+            val opts = getRunSkips(run)
+
+            for (s <- skips; o <- opts.toList if s.size + o.size <= maxSkip) yield s ++ o
+
     /**
       *
       * 1. Prepares combination of tokens (sliding).
-      *  Example: 'A B C D' -> {'A B C', 'A B', 'B C', 'A', 'B', 'C'}
-      *  One sentence converted to 4 pieces.
+      *  Example: 'A B C D' -> {'A B C D', 'A B C', 'B C D', 'A B', 'B C', 'C D', 'A', 'B', 'C', 'D'}
+      *  Pieces longer than the longest synonym plus skipped stopwords are not prepared.
       *
-      * 2. Additionally, each piece converted into set of elements with all possible its stopwords permutations.
+      * 2. Additionally, each piece converted into set of elements with its inner stopwords skipped.
       *  Example: Piece: 'x1, x2(stopword), x3(stopword), x4' will be expanded  into
       *  {'x1, x2, x3, x4', 'x1, x2, x4', 'x1, x3, x4', 'x1, x4'}
+      *  At most `maxSkip` stopwords are skipped, run of more than two stopwords is skipped entirely or not at all.
       *
-      *  3. All variants collected, duplicated sets deleted, etc.
+      * Skipped stopwords sets are built incrementally, each piece extends the sets of the previous piece with
+      * the same first token, and only the sets for its last stopwords run are recomputed.
       *
       * @param toks
+      * @param maxSkip Maximum number of the skipped stopwords, expected to be non-negative.
+      * @param maxSize Maximum synonym size in tokens.
       */
-    private def getPieces(toks: Seq[NCToken]): Seq[Piece] =
-        (for (n <- toks.size until 0 by -1) yield toks.sliding(n)).flatten.map(p => p).map(combo => {
-            val stops = combo.filter(s => isStopWord(s) && s != combo.head && s != combo.last)
-            val slides = mutable.ArrayBuffer.empty[mutable.ArrayBuffer[NCToken]]
-
-            for (stop <- stops)
-                if slides.nonEmpty && slides.last.last.getIndex + 1 == stop.getIndex then
-                    slides.last += stop
-                else
-                    slides += mutable.ArrayBuffer.empty :+ stop
-
-            // Too many stopwords inside skipped.
-            val bigSlides = slides.filter(_.size > 2)
-
-            var stops4Delete =
-                if bigSlides.nonEmpty then
-                    val allBig = bigSlides.flatten
-                    val stops4AllCombs = stops.filter(p => !allBig.contains(p))
-
-                    if stops4AllCombs.nonEmpty then
-                        for (
-                            seq1 <- Range.inclusive(0, stops4AllCombs.size).flatMap(stops4AllCombs.combinations);
-                            seq2 <- Range.inclusive(0, bigSlides.size).flatMap(bigSlides.combinations)
-                        )
-                        yield seq1 ++ seq2.flatten
-                    else
-                        for (seq <- Range.inclusive(0, bigSlides.size).flatMap(bigSlides.combinations))
-                            yield seq.toSeq.flatten
-                else
-                    Range.inclusive(1, stops.size).flatMap(stops.combinations)
-
-            stops4Delete = stops4Delete.filter(seq => !seq.contains(combo.head) && !seq.contains(combo.last))
-
-            Piece(
-                combo.toList,
-                stops4Delete.
-                    map(_.toSet).
-                    map(del => combo.filter(t => !del.contains(t)).toList).filter(_.nonEmpty).sortBy(-_.size).
-                    toList
-            )
-        })
-
-    /**
-      * Multiply 2 data sets.
-      * Examples: if input is (A, B) and (1, 2) output will be ((A, B), (1, 2), (A, 2), (1, B))
-      *
-      * @param data1
-      * @param data2
-      * @param i
-      * @param tmp
-      */
-    @tailrec private def combine(data1: Seq[String], data2: Seq[String], i: Int = 0, tmp: Set[List[String]] = Set(List.empty)): Set[List[String]] =
-        require(data1.sizeIs == data2.size)
-
-        if data1.isEmpty then Set.empty
-        else if i >= data1.size then tmp
-        else combine(data1, data2, i + 1, tmp.map(_ :+ data1(i)) ++ tmp.map(_ :+ data2(i)))
+    private def getPieces(toks: Seq[NCToken], maxSkip: Int, maxSize: Int): Seq[Piece] =
+        val seq = toks.toIndexedSeq
+        val n = seq.size
+        val stops = seq.map(isStopWord)
+        // Long arithmetic, skipped stopwords count is unlimited (`Int.MaxValue`) by default.
+        val maxLen = Math.min(n.toLong, maxSize.toLong + maxSkip).toInt
+
+        // Skipped positions sets of the pieces: (first position, last position) -> sets.
+        val skips = mutable.HashMap.empty[(Int, Int), List[List[Int]]]
+
+        for (i <- 0 until n)
+            var closed = List(List.empty[Int]) // Sets for the inner stopwords runs which can't be continued.
+            var run = List.empty[Int] // Last inner stopwords run.
+
+            for (j <- i until Math.min(n, i + maxLen))
+                // Previous last token becomes inner one.
+                if j - 1 > i then
+                    if stops(j - 1) then
+                        run = run :+ (j - 1)
+                    else if run.nonEmpty then
+                        closed = addRun(closed, run, maxSkip)
+                        run = List.empty
+
+                skips((i, j)) = addRun(closed, run, maxSkip).filter(s => s.nonEmpty && j - i + 1 - s.size <= maxSize)
+
+        for (len <- maxLen until 0 by -1; i <- 0 to n - len)
+            yield
+                val j = i + len - 1
+
+                Piece(
+                    seq.slice(i, j + 1).toList,
+                    skips((i, j)).sortBy(_.size).map(s => (i to j).filter(p => !s.contains(p)).map(seq).toList)
+                )
 
 import NCSemanticEntityParser.*
 
@@ -234,17 +236,13 @@ class NCSemanticEntityParser private (
         this.synsHolder = NCSemanticSynonymsProcessor.prepare(stemmer, parser, macros, elements)
         this.elemsMap = elemsMap
 
-    /**
-      *
-      * @param name
-      */
-    private def warnMissedProperty(name: String): Unit = logger.warn(s"'$name' property not found. Is proper token enricher configured?")
+    /** @inheritdoc */
+    override val getRequiredTokenProperties: Set[String] = Set("stopword", "lemma")
 
     /** @inheritdoc */
     override def parse(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): List[NCEntity] =
-        if toks.exists(_.get[String]("stopword").isEmpty) then warnMissedProperty("stopword")
-
-        val stems = toks.map(p => p -> stemmer.stem(p.getText.toLowerCase)).toMap
+        // Missed required properties are reported once, when the model pipeline is built.
+        val stems = toks.map(p => p -> NCRequestStems.stem(req, stemmer, p.getText)).toMap
         val stems4Lemms =
             var ok = true
             val seq =
@@ -253,11 +251,31 @@ class NCSemanticEntityParser private (
                         ok = lemmaOpt.isDefined
                         t -> lemmaOpt.orNull
 
-            if ok then
-                seq.toMap.map { (tok, lemma) => tok -> stemmer.stem(lemma.toLowerCase) }
-            else
-                warnMissedProperty("lemma")
-                Map.empty
+            if ok then seq.toMap.map { (tok, lemma) => tok -> NCRequestStems.stem(req, stemmer, lemma) } else Map.empty
+
+        val textSyns = synsHolder.textSynonyms
+
+        // Stems IDs of each token: stem of its text and stem of its lemma, if it is different.
+        val stemIds = stems.map { (tok, stem) => tok -> textSyns.getId(stem) }
+        val alts =
+            toks.map(t =>
+                t -> (if stems4Lemms.nonEmpty then List(stemIds(t), textSyns.getId(stems4Lemms(t))).distinct else List(stemIds(t)))
+            ).toMap
+
+        // Stems of each token: stem of its text and stem of its lemma.
+        val stemAlts = toks.map(t => t -> (if stems4Lemms.nonEmpty then List(stems(t), stems4Lemms(t)) else List(stems(t)))).toMap
+
+        // Regex matches results: (regex, token index) -> result.
+        val regexMatches = mutable.HashMap.empty[(String, Int), Boolean]
+
+        def isMatch(regex: Pattern, tok: NCToken): Boolean =
+            regexMatches.getOrElseUpdate(
+                regex.pattern() -> tok.getIndex,
+                {
+                    def match0(txt: String) = regex.matcher(txt).matches()
+                    match0(tok.getText) || match0(tok.getText.toLowerCase)
+                }
+            )
 
         val cache = mutable.HashSet.empty[Seq[Int]] // Variants (tokens without stopwords) can be repeated.
 
@@ -269,41 +287,24 @@ class NCSemanticEntityParser private (
 
         var hs = mutable.ArrayBuffer.empty[Holder]
 
-        for (piece <- getPieces(toks) if !hs.exists(_.isSuperSet(piece.baseTokens));
+        for (piece <- getPieces(toks, cfg.getMaxSkippedStopWords, synsHolder.maxSize) if !hs.exists(_.isSuperSet(piece.baseTokens));
             variant <- Seq(piece.baseTokens) ++ piece.variants)
             def add(elemType: String, value: Option[String]): Unit = hs += Holder(elemType, variant, value)
 
             val idxs = variant.map(_.getIndex)
             if cache.add(idxs) then
                 // Tries to search by stems.
-                synsHolder.textSynonyms.get(variant.map(stems).mkString(" ")) match
+                textSyns.find(variant.map(t => List(stemIds(t)))) match
                     case Some(elems) => elems.foreach(elem => add(elem.elementType, elem.value))
                     case None =>
                         // Combines stems(origin) and stems(lemma)
-                        var found = false
                         if stems4Lemms.nonEmpty then
-                            for (comb <- combine(variant.map(stems), variant.map(stems4Lemms)) if !found)
-                                synsHolder.textSynonyms.get(comb.mkString(" ")) match
-                                    case Some(elems) =>
-                                        found = true
-                                        elems.foreach(elem => add(elem.elementType, elem.value))
-                                    case None => // No-op.
+                            textSyns.find(variant.map(alts)) match
+                                case Some(elems) => elems.foreach(elem => add(elem.elementType, elem.value))
+                                case None => // No-op.
                         // With regex.
-                        for ((elemType, syns) <- synsHolder.mixedSynonyms.getOrElse(variant.size, List.empty))
-                            found = false
-
-                            for (s <- syns if !found)
-                                found = s.chunks.zip(variant).
-                                    sortBy { (chunk, _) => if chunk.isText then 0 else 1 }.
-                                    forall { (chunk, tok) =>
-                                        if chunk.isText then
-                                            chunk.stem == stems(tok) || (stems4Lemms.nonEmpty && chunk.stem == stems4Lemms(tok))
-                                        else
-                                            def match0(txt: String) = chunk.regex.matcher(txt).matches()
-                                            match0(tok.getText) || match0(tok.getText.toLowerCase)
-                                    }
-
-                                if found then add(elemType, Option.when(s.value != null)(s.value))
+                        for (elem <- synsHolder.mixedSynonyms.find(variant, stemAlts, isMatch))
+                            add(elem.elementType, elem.value)
 
         // Deletes redundant.
         hs = hs.distinct
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.nlp.parsers.impl
+
+import org.apache.nlpcraft.NCToken
+
+import java.util.regex.Pattern
+import scala.collection.mutable
+
+/**
+  * Index of the synonyms which contain regex chunks (mixed synonyms). Synonyms are grouped by their size, and each
+  * synonym with text chunks is indexed by the position and the stem of its first text chunk, so only the synonyms
+  * whose text chunk matches the token at the same position are checked. Synonyms without text chunks are always
+  * checked. Chunks of each synonym are checked text ones first, cheap stems comparison before regex matching.
+  *
+  * @param syns Mixed synonyms: synonym size -> element type -> element synonyms.
+  */
+private[parsers] class NCSemanticMixedSynonyms(syns: Map[Int, Map[String, Seq[NCSemanticSynonym]]]):
+    /**
+      *
+      * @param ord Ordinal of the synonym among all synonyms of the same size.
+      * @param elemType
+      * @param synonym
+      */
+    private case class Entry(ord: Int, elemType: String, synonym: NCSemanticSynonym):
+        // Chunks with their positions, text chunks first.
+        val chunks: Seq[(NCSemanticSynonymChunk, Int)] = synonym.chunks.zipWithIndex.sortBy { (c, _) => if c.isText then 0 else 1 }
+        val data: NCSemanticSynonymsElementData = NCSemanticSynonymsElementData(elemType, Option.when(synonym.value != null)(synonym.value))
+
+    /**
+      *
+      * @param always Synonyms without text chunks.
+      * @param byText Synonyms with text chunks: (first text chunk position, its stem) -> synonyms.
+      */
+    private case class Index(always: Seq[Entry], byText: Map[(Int, String), Seq[Entry]])
+
+    private val idx: Map[Int, Index] =
+        syns.map { (size, elemSyns) =>
+            val entries = elemSyns.toSeq.flatMap { (typ, ss) => ss.map(typ -> _) }.zipWithIndex.map { case ((typ, s), i) => Entry(i, typ, s) }
+            val (txt, always) = entries.partition(_.synonym.chunks.exists(_.isText))
+
+            size -> Index(always, txt.groupBy(e => e.chunks.head._2 -> e.chunks.head._1.stem))
+        }
+
+    /**
+      * Maximum synonym size in tokens.
+      */
+    val maxSize: Int = syns.keys.maxOption.getOrElse(0)
+
+    /**
+      * Finds synonyms for given tokens, at most one synonym (the first matching one) for each element.
+      *
+      * @param toks Tokens.
+      * @param getStems Function which gets stems alternatives of the token (e.g. stems of its text and its lemma).
+      * @param isMatch Function which checks whether the token matches the regex.
+      * @return Elements data of the found synonyms.
+      */
+    def find(
+        toks: Seq[NCToken], getStems: NCToken => Seq[String], isMatch: (Pattern, NCToken) => Boolean
+    ): Seq[NCSemanticSynonymsElementData] =
+        idx.get(toks.size) match
+            case Some(i) =>
+                val cands =
+                    i.always ++
+                    toks.indices.flatMap(p => getStems(toks(p)).distinct.flatMap(s => i.byText.getOrElse(p -> s, Seq.empty)))
+
+                val found = mutable.HashSet.empty[String]
+                val res = mutable.ArrayBuffer.empty[NCSemanticSynonymsElementData]
+
+                for (e <- cands.distinctBy(_.ord).sortBy(_.ord) if !found.contains(e.elemType))
+                    if e.chunks.forall { (c, p) => if c.isText then getStems(toks(p)).contains(c.stem) else isMatch(c.regex, toks(p)) } then
+                        found += e.elemType
+                        res += e.data
+
+                res.toSeq
+            case None => Seq.empty
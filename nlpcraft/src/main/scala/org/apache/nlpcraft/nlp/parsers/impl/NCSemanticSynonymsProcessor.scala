@@ -47,9 +47,13 @@ private[parsers] case class NCSemanticSynonymsElementData(elementType: String, v
   * @param mixedSynonyms
   */
 private[parsers] case class NCSemanticSynonymsHolder(
-    textSynonyms: Map[String, Set[NCSemanticSynonymsElementData]],
-    mixedSynonyms: Map[Int, Map[String, Seq[NCSemanticSynonym]]]
-)
+    textSynonyms: NCSemanticSynonymsTrie,
+    mixedSynonyms: NCSemanticMixedSynonyms
+):
+    /**
+      * Maximum synonym size in tokens.
+      */
+    val maxSize: Int = Math.max(textSynonyms.maxSize, mixedSynonyms.maxSize)
 
 /**
   *
@@ -271,4 +275,4 @@ private[parsers] object NCSemanticSynonymsProcessor extends LazyLogging:
         val mixedSyns = buf.groupBy(_.synonym.size).
             map { (size, hs) => size -> hs.groupBy(_.elementType).map { (typ, hs) => typ -> hs.map(_.synonym).toSeq } }
 
-        NCSemanticSynonymsHolder(txtSyns, mixedSyns)
\ No newline at end of file
+        NCSemanticSynonymsHolder(new NCSemanticSynonymsTrie(txtSyns), new NCSemanticMixedSynonyms(mixedSyns))
\ No newline at end of file
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.nlp.parsers.impl
+
+import scala.collection.mutable
+
+/**
+  * Token level trie of the text synonyms. Each path from the root is a sequence of the synonym tokens stems,
+  * so the synonyms which start with the same words share their prefix and a tokens sequence can be checked
+  * token by token, stopping on the first token which is not a continuation of any synonym. Stems are interned
+  * into the integer IDs when the trie is built, so the tokens are matched by their stems IDs.
+  *
+  * @param syns Text synonyms: stems of the synonym tokens joined by space -> synonym elements.
+  */
+private[parsers] class NCSemanticSynonymsTrie(syns: Map[String, Set[NCSemanticSynonymsElementData]]):
+    /**
+      *
+      */
+    private class Node:
+        val children = mutable.HashMap.empty[Int, Node]
+        var elements: Set[NCSemanticSynonymsElementData] = Set.empty
+
+    private val root = new Node()
+    private val ids = mutable.HashMap.empty[String, Int]
+
+    for ((stem, elems) <- syns)
+        // Keeps empty parts, so the path is the same as for the tokens stems joined by space.
+        val node = stem.split(" ", -1).foldLeft(root)((n, s) => n.children.getOrElseUpdate(ids.getOrElseUpdate(s, ids.size), new Node()))
+
+        node.elements ++= elems
+
+    /**
+      * Maximum synonym size in tokens.
+      */
+    val maxSize: Int = syns.keys.map(_.split(" ", -1).length).maxOption.getOrElse(0)
+
+    /**
+      * Gets ID of the given stem.
+      *
+      * @param stem Stem.
+      * @return Stem ID or `-1` if the stem is not used in any synonym.
+      */
+    def getId(stem: String): Int = ids.getOrElse(stem, -1)
+
+    /**
+      * Finds synonym for given tokens. Each token is given by its stems IDs alternatives (e.g. stems of its text and
+      * its lemma), synonym can match any of them. Alternatives are checked in the given order, so the synonym
+      * matching the first alternatives of all the tokens is found first.
+      *
+      * @param toks Stems IDs alternatives for each token.
+      * @return Elements of the first found synonym.
+      */
+    def find(toks: List[Seq[Int]]): Option[Set[NCSemanticSynonymsElementData]] =
+        def find0(node: Node, toks: List[Seq[Int]]): Option[Set[NCSemanticSynonymsElementData]] =
+            toks match
+                case Nil => Option.when(node.elements.nonEmpty)(node.elements)
+                case alts :: tail => alts.iterator.flatMap(id => node.children.get(id)).flatMap(find0(_, tail)).nextOption()
+
+        if toks.isEmpty then None else find0(root, toks)
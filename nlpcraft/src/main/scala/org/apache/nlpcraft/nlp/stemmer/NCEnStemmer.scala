@@ -18,14 +18,38 @@
 package org.apache.nlpcraft.nlp.stemmer
 
 import opennlp.tools.stemmer.PorterStemmer
+import org.apache.nlpcraft.internal.util.NCLruCache
 import org.apache.nlpcraft.nlp.parsers.*
 
+/**
+  * [[NCEnStemmer]] helper.
+  */
+private object NCEnStemmer:
+    // Maximum size of the stems cache.
+    private final val CACHE_SIZE = 100000
+
+    // Stems LRU cache shared by all instances, words are stemmatized independently of the instance.
+    // Its lookups don't take locks, so the components running in parallel aren't serialized.
+    private val cache = new NCLruCache[String, String](CACHE_SIZE)
+
+    // Porter stemmer keeps its state between calls, so each thread uses its own one.
+    private val stemmers = ThreadLocal.withInitial[PorterStemmer](() => new PorterStemmer)
+
+import NCEnStemmer.*
+
 /**
   * Stemmer implementation for the English language that delegates to
-  * [[https://opennlp.apache.org/ OpenNLP]] Porter Stemmer.
+  * [[https://opennlp.apache.org/ OpenNLP]] Porter Stemmer. Stems are cached, so the repeated
+  * words are not stemmatized again. This implementation is thread safe.
   */
 class NCEnStemmer extends NCStemmer:
-    private val stemmer = new PorterStemmer
-
     /** @inheritdoc */
-    def stem(word: String): String = stemmer.stem(word)
+    def stem(word: String): String =
+        val cached = cache.get(word)
+
+        if cached != null then cached
+        else
+            val stem = stemmers.get().stem(word)
+            cache.put(word, stem)
+
+            stem
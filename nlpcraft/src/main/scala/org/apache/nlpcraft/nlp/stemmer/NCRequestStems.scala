@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.nlp.stemmer
+
+import org.apache.nlpcraft.NCRequest
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+  * Request scoped cache of the stems, shared by all built-in pipeline components which stem the request tokens
+  * texts and lemmas, so each word of the request is stemmatized once. The cache is held by the request created by
+  * the model pipeline and it is released together with the request. Thread safe.
+  */
+private[nlpcraft] trait NCRequestStems:
+    // (stemmer key, lower case word) -> stem.
+    private[stemmer] val stems = new ConcurrentHashMap[(AnyRef, String), String]()
+
+/**
+  * [[NCRequestStems]] helper.
+  */
+private[nlpcraft] object NCRequestStems:
+    /**
+      * Gets the key of the stemmer. All [[NCEnStemmer]] instances return the same stems, so they share them.
+      *
+      * @param stemmer Stemmer.
+      */
+    private def getKey(stemmer: NCStemmer): AnyRef =
+        if stemmer.getClass == classOf[NCEnStemmer] then classOf[NCEnStemmer] else stemmer
+
+    /**
+      * Gets the stem of the lower case version of the given word. Word is stemmatized on each call if the request
+      * doesn't hold the stems cache, i.e. it is not created by the model pipeline.
+      *
+      * @param req Request.
+      * @param stemmer Stemmer.
+      * @param word Word.
+      */
+    def stem(req: NCRequest, stemmer: NCStemmer, word: String): String =
+        val w = word.toLowerCase
+
+        req match
+            case r: NCRequestStems => r.stems.computeIfAbsent(getKey(stemmer) -> w, _ => stemmer.stem(w))
+            case _ => stemmer.stem(w)
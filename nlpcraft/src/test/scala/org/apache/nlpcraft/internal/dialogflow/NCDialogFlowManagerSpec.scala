@@ -131,4 +131,58 @@ class NCDialogFlowManagerSpec extends AnyFunSuite with BeforeAndAfter:
 
         mgr.close()
         check("user1" -> 0, "user2" -> 0)
-    }
\ No newline at end of file
+    }
+
+    test("test intent IDs") {
+        mgr = NCDialogFlowManager(mkConfig())
+
+        require(mgr.getDialogFlowIntentIds("user1") == "")
+
+        addMatchedIntent("i1", ContextMock("user1"))
+        addMatchedIntent("i2", ContextMock("user1"))
+
+        val ids = mgr.getDialogFlowIntentIds("user1")
+
+        // The same instance is returned until the dialog flow is changed.
+        require(ids == "i1 i2" && (mgr.getDialogFlowIntentIds("user1") eq ids))
+
+        addMatchedIntent("i3", ContextMock("user1"))
+        require(mgr.getDialogFlowIntentIds("user1") == "i1 i2 i3")
+
+        mgr.clear(usrId = "user1", _.getIntentMatch.getIntentId == "i2")
+        require(mgr.getDialogFlowIntentIds("user1") == "i1 i3")
+
+        mgr.clear(usrId = "user1")
+        require(mgr.getDialogFlowIntentIds("user1") == "")
+    }
+
+    test("test dialog flow versions") {
+        mgr = NCDialogFlowManager(mkConfig())
+
+        def ver(usrId: String): Long = mgr.getDialogFlowVersion(usrId)
+
+        require(ver("user1") == 0 && mgr.getVersionedDialogFlowIntentIds("user1") == (0L, ""))
+
+        addMatchedIntent("i1", ContextMock("user1"))
+        val v1 = ver("user1")
+        require(v1 != 0 && ver("user1") == v1 && mgr.getVersionedDialogFlowIntentIds("user1") == (v1, "i1"))
+
+        // Other users dialog flows don't change the version.
+        addMatchedIntent("i1", ContextMock("user2"))
+        require(ver("user1") == v1 && ver("user2") != v1)
+
+        addMatchedIntent("i2", ContextMock("user1"))
+        val v2 = ver("user1")
+        require(v2 != v1 && v2 != ver("user2"))
+
+        mgr.clear(usrId = "user1", _.getIntentMatch.getIntentId == "i2")
+        val v3 = ver("user1")
+        require(v3 != v1 && v3 != v2 && mgr.getVersionedDialogFlowIntentIds("user1") == (v3, "i1"))
+
+        mgr.clear(usrId = "user1")
+        require(ver("user1") == 0)
+
+        // Versions are not reused.
+        addMatchedIntent("i1", ContextMock("user1"))
+        require(!Set(0L, v1, v2, v3).contains(ver("user1")))
+    }
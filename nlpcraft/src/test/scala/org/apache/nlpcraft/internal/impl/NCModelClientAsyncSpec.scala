@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import annotations.*
+import nlp.parsers.*
+import nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicBoolean
+import scala.concurrent.Await
+import scala.concurrent.duration.Duration
+import scala.util.Using
+
+/**
+  *
+  */
+class NCModelClientAsyncSpec extends AnyFunSuite:
+    import NCSemanticTestElement as TE
+
+    private val called = new AtomicBoolean(false)
+
+    private val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+        override val getPipeline: NCPipeline = mkEnPipeline(TE("e1"), TE("e2"))
+
+        @NCIntent("intent=i1 term(t1)={# == 'e1'}")
+        def onMatch(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t1") t1: NCEntity): NCResult =
+            called.set(true)
+            TEST_RESULT
+
+    /**
+      *
+      */
+    test("test ask async") {
+        Using.resource(new NCModelClient(mdl)) { client =>
+            val futs = (0 until 10).map(i => client.askAsync("e1", s"userId$i"))
+
+            for (f <- futs) require(f.get(10, TimeUnit.SECONDS).getIntentId === "i1")
+
+            require(Await.result(client.askFuture("e1", "userId"), Duration.Inf).getIntentId === "i1")
+        }
+    }
+
+    /**
+      *
+      */
+    test("test ask async rejection") {
+        Using.resource(new NCModelClient(mdl)) { client =>
+            try
+                client.askAsync("e2", "userId").get()
+                require(false)
+            catch case e: ExecutionException => require(e.getCause.isInstanceOf[NCRejection])
+        }
+    }
+
+    /**
+      *
+      */
+    test("test ask async with user executor and cancellation") {
+        val exec = Executors.newSingleThreadExecutor()
+        val latch = new CountDownLatch(1)
+
+        try
+            Using.resource(new NCModelClient(mdl, exec)) { client =>
+                // Blocks the single executor thread so the next request stays in the queue.
+                exec.execute(() => latch.await())
+
+                called.set(false)
+
+                val fut = client.askAsync("e1", "userId")
+
+                require(fut.cancel(true))
+
+                latch.countDown()
+
+                try
+                    fut.get()
+                    require(false)
+                catch case _: CancellationException => // No-op.
+            }
+
+            require(!called.get())
+        finally
+            exec.shutdown()
+    }
+
+    /**
+      *
+      */
+    test("test ask async cancellation in pipeline") {
+        import NCSemanticTestElement as TE
+
+        val entered = new CountDownLatch(1)
+        val release = new CountDownLatch(1)
+        val done = new AtomicBoolean(false)
+
+        val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+            override val getPipeline: NCPipeline =
+                val pl = mkEnPipeline(TE("e1"))
+                // Token validator blocked until the request is cancelled.
+                pl.tokVals += ((_: NCRequest, _: NCModelConfig, _: List[NCToken]) =>
+                    entered.countDown()
+                    release.await()
+                )
+                pl
+
+            @NCIntent("intent=i1 term(t1)={# == 'e1'}")
+            def onMatch(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t1") t1: NCEntity): NCResult =
+                done.set(true)
+                TEST_RESULT
+
+        val exec = Executors.newSingleThreadExecutor()
+
+        try
+            Using.resource(new NCModelClient(mdl, exec)) { client =>
+                val fut = client.askAsync("e1", "userId")
+
+                require(entered.await(10, TimeUnit.SECONDS))
+                require(fut.cancel(true))
+
+                release.countDown()
+            }
+
+            // Client closing waits for the request processing finished by the user-supplied executor.
+            require(!done.get())
+        finally
+            exec.shutdown()
+    }
+
+    /**
+      *
+      */
+    test("test close from completion callback") {
+        def test0(client: NCModelClient): Unit =
+            val closed = new CompletableFuture[Unit]()
+
+            client.askAsync("e1", "userId").thenRun(() =>
+                try
+                    client.close()
+                    closed.complete(())
+                catch case e: Throwable => closed.completeExceptionally(e)
+            )
+
+            // Client is closed by the thread which processed the request.
+            closed.get(10, TimeUnit.SECONDS)
+
+        test0(new NCModelClient(mdl))
+
+        val exec = Executors.newSingleThreadExecutor()
+
+        try test0(new NCModelClient(mdl, exec))
+        finally exec.shutdown()
+    }
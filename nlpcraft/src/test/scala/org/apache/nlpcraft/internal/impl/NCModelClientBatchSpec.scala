@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import annotations.*
+import nlp.parsers.*
+import nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+import scala.collection.mutable
+import scala.util.Using
+
+/**
+  *
+  */
+class NCModelClientBatchSpec extends AnyFunSuite:
+    test("test") {
+        import NCSemanticTestElement as TE
+
+        val flowSizes = mutable.ArrayBuffer.empty[Int]
+
+        val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+            override val getPipeline: NCPipeline = mkEnPipeline(TE("e1"), TE("e2"))
+
+            @NCIntent("intent=i1 term(t1)={# == 'e1'}")
+            def onMatch(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t1") t1: NCEntity): NCResult =
+                flowSizes += ctx.getConversation.getDialogFlow.size
+                TEST_RESULT
+
+        Using.resource(new NCModelClient(mdl)) { client =>
+            val res = client.askBatch(
+                Seq(
+                    ("e1", "userId", Map.empty),
+                    ("e2", "userId", Map.empty),
+                    ("e1", "userId", Map.empty),
+                    ("e1", "userId", Map.empty)
+                )
+            )
+
+            require(res.size == 4)
+            require(res(0).isSuccess && res(2).isSuccess && res(3).isSuccess)
+            require(res(1).isFailure && res(1).failed.get.isInstanceOf[NCRejection])
+
+            // Dialog flow is updated in the batch order.
+            require(flowSizes == Seq(0, 1, 2))
+        }
+    }
+
+    test("test pipelined") {
+        import NCSemanticTestElement as TE
+
+        val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+            override val getConfig: NCModelConfig =
+                new NCPropertyMapAdapter with NCModelConfig:
+                    override val getId: String = CFG.getId
+                    override val getName: String = CFG.getName
+                    override val getVersion: String = CFG.getVersion
+                    override val getPipelineStageWorkers: Int = 2
+                    override val getPipelineStageQueueSize: Int = 1
+
+            override val getPipeline: NCPipeline = mkEnPipeline(TE("e1"), TE("e2"))
+
+            @NCIntent("intent=i1 term(t1)={# == 'e1'}")
+            def onMatch(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t1") t1: NCEntity): NCResult = TEST_RESULT
+
+        Using.resource(new NCModelClient(mdl)) { client =>
+            val res = client.askBatch((0 until 20).map(i => (if i % 2 == 0 then "e1" else "e2", s"userId$i", Map.empty)))
+
+            require(res.size == 20)
+
+            // Results order is the same as the requests one.
+            for ((r, i) <- res.zipWithIndex) require(r.isSuccess == (i % 2 == 0))
+        }
+    }
+
+    test("test timeout") {
+        import NCSemanticTestElement as TE
+
+        val timeout = 200
+        // Never released, so each request is processed for some time.
+        val gate = new CountDownLatch(1)
+
+        val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+            override val getConfig: NCModelConfig =
+                new NCPropertyMapAdapter with NCModelConfig:
+                    override val getId: String = CFG.getId
+                    override val getName: String = CFG.getName
+                    override val getVersion: String = CFG.getVersion
+                    override val getRequestTimeout: Long = timeout
+
+            override val getPipeline: NCPipeline =
+                val pl = mkEnPipeline(TE("e1"))
+                pl.tokVals += ((_: NCRequest, _: NCModelConfig, _: List[NCToken]) => gate.await(timeout / 5, TimeUnit.MILLISECONDS))
+                pl
+
+            @NCIntent("intent=i1 term(t1)={# == 'e1'}")
+            def onMatch(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t1") t1: NCEntity): NCResult = TEST_RESULT
+
+        Using.resource(new NCModelClient(mdl)) { client =>
+            // Whole batch takes longer than the timeout, but each request fits it.
+            val res = client.askBatch((0 until 20).map(i => ("e1", s"userId$i", Map.empty)))
+
+            require(res.size == 20)
+            require(res.forall(_.isSuccess))
+        }
+    }
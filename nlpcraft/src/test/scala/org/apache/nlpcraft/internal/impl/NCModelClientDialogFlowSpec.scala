@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import annotations.*
+import nlp.parsers.*
+import nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import scala.util.Using
+
+/**
+  * Intents with the dialog flow regex, which check results are cached until the user dialog flow is changed.
+  */
+class NCModelClientDialogFlowSpec extends AnyFunSuite:
+    test("test flow changes") {
+        import NCSemanticTestElement as TE
+
+        val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+            override val getPipeline: NCPipeline = mkEnPipeline(TE("e1"), TE("e2"))
+
+            @NCIntent("intent=i1 term(t1)={# == 'e1'}")
+            def onMatch1(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t1") t1: NCEntity): NCResult = TEST_RESULT
+
+            @NCIntent("intent=i2 flow='i1' term(t2)={# == 'e2'}")
+            def onMatch2(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t2") t2: NCEntity): NCResult = TEST_RESULT
+
+        Using.resource(new NCModelClient(mdl)) { client =>
+            def matched(txt: String, usrId: String): Boolean =
+                try
+                    client.ask(txt, usrId)
+                    true
+                catch case _: NCRejection => false
+
+            // Empty dialog flow.
+            require(!matched("e2", "user1"))
+
+            // Dialog flow is changed by the matched intent, flow regex is checked again.
+            require(matched("e1", "user1"))
+            require(matched("e2", "user1"))
+
+            // Other user dialog flow is still empty.
+            require(!matched("e2", "user2"))
+            require(matched("e2", "user1"))
+
+            // Dialog flow is changed by its clearing.
+            client.clearDialog("user1")
+            require(!matched("e2", "user1"))
+        }
+    }
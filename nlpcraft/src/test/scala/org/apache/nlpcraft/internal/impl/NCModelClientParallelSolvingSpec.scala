@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import annotations.*
+import nlp.parsers.*
+import nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import scala.util.Using
+
+/**
+  * Checks that parallel intent solving gives the same results as the sequential one.
+  */
+class NCModelClientParallelSolvingSpec extends AnyFunSuite:
+    import NCSemanticTestElement as TE
+
+    /**
+      *
+      * @param par
+      */
+    private def mkModel(par: Boolean): NCModel =
+        new NCTestModelAdapter:
+            override val getConfig: NCModelConfig =
+                new NCPropertyMapAdapter with NCModelConfig:
+                    override val getId: String = CFG.getId
+                    override val getName: String = CFG.getName
+                    override val getVersion: String = CFG.getVersion
+                    override val isParallelIntentSolving: Boolean = par
+
+            override val getPipeline: NCPipeline =
+                mkEnPipeline(TE("a", "x y"), TE("b", "y z"), TE("c", "x"), TE("d", "z"), TE("e", "y"))
+
+            @NCIntent("intent=i1 term(t)={# == 'a' || # == 'b'}")
+            def on1(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity): NCResult = TEST_RESULT
+
+            @NCIntent("intent=i2 term(t1)={# == 'c'} term(t2)={# == 'd'}?")
+            def on2(
+                ctx: NCContext,
+                im: NCIntentMatch,
+                @NCIntentTerm("t1") t1: NCEntity,
+                @NCIntentTerm("t2") t2: Option[NCEntity]
+            ): NCResult = TEST_RESULT
+
+            @NCIntent("intent=i3 term(t)={# == 'e' || # == 'd'}[1,2]")
+            def on3(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: List[NCEntity]): NCResult = TEST_RESULT
+
+            @NCIntent("intent=i4 term(t)={true}[1,3]")
+            def on4(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: List[NCEntity]): NCResult = TEST_RESULT
+
+    test("test") {
+        Using.resources(new NCModelClient(mkModel(false)), new NCModelClient(mkModel(true))) { (seq, par) =>
+            for (txt <- Seq("x y z", "x z", "y", "z y x", "x y z x y z"))
+                val r1 = seq.debugAsk(txt, "userId", saveHist = false)
+                val r2 = par.debugAsk(txt, "userId", saveHist = false)
+
+                require(r1.getIntentId == r2.getIntentId, s"Different intents for: $txt")
+                require(
+                    r1.getCallbackArguments.map(_.map(_.getType)) == r2.getCallbackArguments.map(_.map(_.getType)),
+                    s"Different arguments for: $txt"
+                )
+        }
+    }
+
+    /**
+      *
+      */
+    test("test ties") {
+        // Intents with the same terms, so all of them have the same match weight.
+        def mkTiesModel(par: Boolean): NCModel =
+            new NCTestModelAdapter:
+                override val getConfig: NCModelConfig =
+                    new NCPropertyMapAdapter with NCModelConfig:
+                        override val getId: String = CFG.getId
+                        override val getName: String = CFG.getName
+                        override val getVersion: String = CFG.getVersion
+                        override val isParallelIntentSolving: Boolean = par
+
+                override val getPipeline: NCPipeline = mkEnPipeline(TE("a"), TE("b"))
+
+                @NCIntent("intent=i1 term(t)={# == 'a'}")
+                def on1(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity): NCResult = TEST_RESULT
+
+                @NCIntent("intent=i2 term(t)={# == 'a'}")
+                def on2(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity): NCResult = TEST_RESULT
+
+                @NCIntent("intent=i3 term(t)={# == 'a'}")
+                def on3(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity): NCResult = TEST_RESULT
+
+                @NCIntent("intent=i4 term(t)={# == 'a' || # == 'b'}")
+                def on4(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity): NCResult = TEST_RESULT
+
+        Using.resources(new NCModelClient(mkTiesModel(false)), new NCModelClient(mkTiesModel(true))) { (seq, par) =>
+            for (txt <- Seq("a", "a b", "b a"))
+                val winner = seq.debugAsk(txt, "userId", saveHist = false).getIntentId
+
+                // Winner is the same for all attempts in both modes.
+                for (_ <- 0 until 20)
+                    require(seq.debugAsk(txt, "userId", saveHist = false).getIntentId == winner, s"Unstable winner for: $txt")
+                    require(par.debugAsk(txt, "userId", saveHist = false).getIntentId == winner, s"Different winner for: $txt")
+        }
+    }
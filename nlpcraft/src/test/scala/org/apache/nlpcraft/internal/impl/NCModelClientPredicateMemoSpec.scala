@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import annotations.*
+import nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.atomic.AtomicInteger
+import scala.collection.mutable
+import scala.util.Using
+
+/**
+  * Checks that the same term predicate is evaluated once per entity within the request.
+  */
+class NCModelClientPredicateMemoSpec extends AnyFunSuite:
+    /**
+      * Entity which counts reads of its 'v' property.
+      *
+      * @param tok
+      * @param reqId
+      */
+    private class CountingEntity(tok: NCToken, reqId: String) extends NCPropertyMapAdapter with NCEntity:
+        val reads = new AtomicInteger()
+
+        put("v", tok.getText)
+
+        override def get[T](key: String): Option[T] =
+            if key == "v" then reads.incrementAndGet()
+            super.get(key)
+
+        override def getTokens: List[NCToken] = List(tok)
+        override def getRequestId: String = reqId
+        override def getType: String = tok.getText
+
+    private val ents = mutable.ArrayBuffer.empty[CountingEntity]
+    private val matches = mutable.ArrayBuffer.empty[(String, String)]
+
+    private val parser: NCEntityParser =
+        (req: NCRequest, _: NCModelConfig, toks: List[NCToken]) =>
+            val res = toks.map(t => new CountingEntity(t, req.getRequestId))
+            ents.synchronized { ents ++= res }
+            res
+
+    // Both intents share the fragment term, which results depend only on the entity.
+    @NCIntent("fragment=f term(t)={meta_ent('v') == 'a'}")
+    class M extends NCModel(CFG, mkEnPipeline(parser)):
+        @NCIntent("intent=i1 fragment(f) term(x)={# == 'b'}")
+        def onI1(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity, @NCIntentTerm("x") x: NCEntity): NCResult =
+            matches.synchronized { matches += t.mkText -> x.mkText }
+            TEST_RESULT
+
+        // Fails on its last term, after the fragment term is checked.
+        @NCIntent("intent=i2 fragment(f) term(x)={# == 'b' && req_text == 'none'}")
+        def onI2(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity, @NCIntentTerm("x") x: NCEntity): NCResult =
+            TEST_RESULT
+
+    test("test") {
+        Using.resource(new NCModelClient(new M())) { client =>
+            for (_ <- 0 until 2)
+                ents.clear()
+
+                require(client.ask("a b", "userId").getIntentId == "i1")
+
+                require(ents.map(_.getType).sorted == Seq("a", "b"))
+
+                // Without memoization the fragment predicate is evaluated for each intent.
+                require(ents.forall(_.reads.get() <= 1))
+                require(ents.find(_.getType == "a").get.reads.get() == 1)
+
+            require(matches == Seq("a" -> "b", "a" -> "b"))
+        }
+    }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import annotations.*
+import nlp.parsers.*
+import nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+import scala.util.Using
+
+/**
+  *
+  */
+class NCModelClientTimeoutSpec extends AnyFunSuite:
+    private val TIMEOUT = 50
+
+    test("test") {
+        import NCSemanticTestElement as TE
+
+        // Token validator is blocked until this latch is released, but not longer than few timeouts.
+        val release = new CountDownLatch(1)
+
+        val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+            override val getConfig: NCModelConfig =
+                new NCPropertyMapAdapter with NCModelConfig:
+                    override val getId: String = CFG.getId
+                    override val getName: String = CFG.getName
+                    override val getVersion: String = CFG.getVersion
+                    override val getRequestTimeout: Long = TIMEOUT
+
+            override val getPipeline: NCPipeline =
+                val pl = mkEnPipeline(TE("e1"))
+                // Blocking token validator.
+                pl.tokVals += ((_: NCRequest, _: NCModelConfig, _: List[NCToken]) => release.await(TIMEOUT * 4, TimeUnit.MILLISECONDS))
+                pl
+
+            @NCIntent("intent=i1 term(t1)={# == 'e1'}")
+            def onMatch(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t1") t1: NCEntity): NCResult = TEST_RESULT
+
+        Using.resource(new NCModelClient(mdl)) { client =>
+            try
+                client.ask("e1", "userId")
+                require(false)
+            catch case e: NCTimeoutRejection => println(s"Expected error: ${e.getMessage}")
+
+            release.countDown()
+
+            require(client.ask("e1", "userId").getIntentId === "i1")
+
+            // Explicit timeout overrides the model one.
+            require(client.ask("e1", "userId", Map.empty, 0).getIntentId === "i1")
+        }
+    }
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import annotations.*
+import nlp.parsers.*
+import nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import scala.util.Using
+
+/**
+  * Checks that variants with less tokens are used when all better matches are skipped.
+  */
+class NCModelClientVariantsSpec extends AnyFunSuite:
+    test("test") {
+        import NCSemanticTestElement as TE
+
+        @volatile var skip = false
+
+        val mdl: NCTestModelAdapter = new NCTestModelAdapter :
+            override val getPipeline: NCPipeline = mkEnPipeline(TE("a3", "x y z"), TE("b1", "y"))
+
+            @NCIntent("intent=i1 term(t)={# == 'a3'}")
+            def onA3(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity): NCResult =
+                if skip then throw new NCIntentSkip("Skipped.")
+                TEST_RESULT
+
+            @NCIntent("intent=i2 term(t)={# == 'b1'}")
+            def onB1(ctx: NCContext, im: NCIntentMatch, @NCIntentTerm("t") t: NCEntity): NCResult = TEST_RESULT
+
+        Using.resource(new NCModelClient(mdl)) { client =>
+            require(client.ask("x y z", "userId").getIntentId === "i1")
+
+            skip = true
+
+            require(client.ask("x y z", "userId").getIntentId === "i2")
+        }
+    }
@@ -32,7 +32,8 @@ import static java.util.stream.Collectors.toList;
 // java long values implicit conversion performance problems.
 
 /**
- *
+ * Power set based variants finder, the reference implementation for the variants generator tests
+ * (see {@code NCVariantsGenerator}).
  */
 class NCModelPipelineHelper extends RecursiveTask<List<Long>> {
     private static final long THRESHOLD = (long)Math.pow(2, 20);
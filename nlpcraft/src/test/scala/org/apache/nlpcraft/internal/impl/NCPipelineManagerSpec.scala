@@ -23,6 +23,8 @@ import org.apache.nlpcraft.nlp.util.*
 import org.scalatest.funsuite.AnyFunSuite
 import org.scalatest.*
 
+import java.util.concurrent.RejectedExecutionException
+
 /**
   *
   */
@@ -32,7 +34,8 @@ class NCPipelineManagerSpec extends AnyFunSuite:
       */
     test("test") {
         def test(txt: String, variantCnt: Int, elements: NCSemanticElement*): Unit =
-            val res = new NCModelPipelineManager(CFG, mkEnPipeline(NCTestUtils.mkEnSemanticParser(elements*))).prepare(txt, null, "userId")
+            val mgr = new NCModelPipelineManager(CFG, mkEnPipeline(NCTestUtils.mkEnSemanticParser(elements*)))
+            val res = try mgr.prepare(txt, null, "userId") finally mgr.close()
 
             println(s"Variants count: ${res.variants.size}")
             for ((v, idx) <- res.variants.zipWithIndex)
@@ -44,3 +47,57 @@ class NCPipelineManagerSpec extends AnyFunSuite:
         test("t1 t2", 4, NCSemanticTestElement("t1", "t2"), NCSemanticTestElement("t2", "t1"))
         test("t1 t2", 2, NCSemanticTestElement("t1", "t2"), NCSemanticTestElement("t2"))
     }
+
+    /**
+      *
+      */
+    test("test parallel entity parsers") {
+        import NCSemanticTestElement as TE
+
+        // The first parser is the slowest one, but its entities should be the first ones anyway.
+        def mkSlow(delay: Long, elms: NCSemanticElement*): NCEntityParser =
+            val p = NCTestUtils.mkEnSemanticParser(elms*)
+
+            new NCEntityParser:
+                override def parse(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): List[NCEntity] =
+                    Thread.sleep(delay)
+                    p.parse(req, cfg, toks)
+
+        val pipeline = new NCPipelineBuilder().
+            withTokenParser(EN_TOK_PARSER).
+            withEntityParser(mkSlow(300, TE("t1"))).
+            withEntityParser(mkSlow(100, TE("t2"))).
+            withEntityParser(mkSlow(0, TE("t3"))).
+            withParallelEntityParsers(true).
+            build
+
+        val mgr = new NCModelPipelineManager(CFG, pipeline)
+        val res = try mgr.prepare("t1 t2 t3", null, "userId") finally mgr.close()
+
+        require(res.variants.sizeIs == 1)
+        require(res.variants.head.getEntities.map(_.getType) == List("t1", "t2", "t3"))
+    }
+
+    /**
+      *
+      */
+    test("test pipelined closed") {
+        val cfg = new NCPropertyMapAdapter with NCModelConfig:
+            override val getId: String = CFG.getId
+            override val getName: String = CFG.getName
+            override val getVersion: String = CFG.getVersion
+            override val getPipelineStageWorkers: Int = 1
+            override val getPipelineStageQueueSize: Int = 1
+
+        val mgr = new NCModelPipelineManager(cfg, mkEnPipeline(NCTestUtils.mkEnSemanticParser(NCSemanticTestElement("t1"))))
+
+        require(mgr.prepareBatch((0 until 10).map(_ => NCPipelineInput("t1", null, "userId"))).forall(_.isRight))
+
+        mgr.close()
+
+        // Request is rejected instead of waiting forever.
+        try
+            mgr.prepare("t1", null, "userId")
+            require(false)
+        catch case e: RejectedExecutionException => println(s"Expected error: ${e.getMessage}")
+    }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import org.apache.nlpcraft.nlp.util.*
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.UUID
+
+/**
+  *
+  */
+class NCRequestTraceSpec extends AnyFunSuite:
+    private def mkConfig(rate: Double): NCModelConfig =
+        new NCPropertyMapAdapter with NCModelConfig:
+            override val getId: String = CFG.getId
+            override val getName: String = CFG.getName
+            override val getVersion: String = CFG.getVersion
+            override val getTraceSampleRate: Double = rate
+
+    private def mkRequest(): NCRequest =
+        new NCRequest:
+            override val getUserId: String = "userId"
+            override val getRequestId: String = UUID.randomUUID().toString
+            override val getText: String = "text"
+            override val getReceiveTimestamp: Long = System.currentTimeMillis()
+            override val getRequestData: Map[String, Any] = Map.empty
+
+    /**
+      *
+      */
+    test("test sampling") {
+        val reqs = (0 until 10000).map(_ => mkRequest())
+
+        def count(rate: Double): Int = reqs.count(NCRequestTrace.isSampled(mkConfig(rate), _))
+
+        require(count(0.0) == 0)
+        require(count(1.0) == reqs.size)
+
+        val half = count(0.5)
+
+        require(half > 4000 && half < 6000, s"Unexpected sampled requests count: $half")
+
+        // The same request is always sampled in the same way.
+        val cfg = mkConfig(0.5)
+
+        for (r <- reqs) require(NCRequestTrace.isSampled(cfg, r) == NCRequestTrace.isSampled(cfg, r))
+
+        // Invalid rates.
+        for (rate <- Seq(-0.1, 1.1, Double.NaN))
+            try
+                NCRequestTrace.isSampled(mkConfig(rate), reqs.head)
+                require(false)
+            catch case e: IllegalArgumentException => println(s"Expected error: ${e.getMessage}")
+    }
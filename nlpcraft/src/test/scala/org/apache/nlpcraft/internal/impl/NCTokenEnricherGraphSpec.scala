@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.apache.nlpcraft.*
+import org.scalatest.funsuite.AnyFunSuite
+
+/**
+  *
+  */
+class NCTokenEnricherGraphSpec extends AnyFunSuite:
+    private case class Enricher(name: String, req: Set[String], prod: Set[String]) extends NCTokenEnricher:
+        override def enrich(req: NCRequest, cfg: NCModelConfig, toks: List[NCToken]): Unit = ()
+        override def getRequiredTokenProperties: Set[String] = req
+        override def getProducedTokenProperties: Set[String] = prod
+
+    private val nlp = Enricher("nlp", Set.empty, Set("pos", "lemma"))
+    private val stop = Enricher("stop", Set("pos", "lemma"), Set("stopword"))
+    private val swear = Enricher("swear", Set.empty, Set("swear"))
+    private val dict = Enricher("dict", Set("lemma"), Set("dict"))
+    private val undecl = Enricher("undecl", Set.empty, Set.empty)
+
+    // Token parser which declares its produced properties.
+    private val tokParser: NCTokenParser =
+        new NCTokenParser:
+            override def tokenize(text: String): List[NCToken] = List.empty
+            override def getProducedTokenProperties: Set[String] = Set("text")
+
+    private val undeclTokParser: NCTokenParser = (_: String) => List.empty
+
+    private def names(levels: Seq[Seq[NCTokenEnricher]]): Seq[Seq[String]] =
+        levels.map(_.map(_.asInstanceOf[Enricher].name))
+
+    /**
+      *
+      */
+    test("test levels") {
+        require(names(NCTokenEnricherGraph.mkLevels(Seq(nlp, stop, swear, dict))) == Seq(Seq("nlp"), Seq("stop", "swear", "dict")))
+
+        // Enrichers order is kept, independent enricher isn't moved before the dependent ones.
+        require(names(NCTokenEnricherGraph.mkLevels(Seq(nlp, stop, swear))) == Seq(Seq("nlp"), Seq("stop", "swear")))
+        require(names(NCTokenEnricherGraph.mkLevels(Seq(swear, nlp, stop))) == Seq(Seq("swear", "nlp"), Seq("stop")))
+
+        // Enricher without declared properties is a barrier.
+        require(names(NCTokenEnricherGraph.mkLevels(Seq(nlp, undecl, swear))) == Seq(Seq("nlp"), Seq("undecl"), Seq("swear")))
+
+        require(NCTokenEnricherGraph.mkLevels(Seq.empty).isEmpty)
+    }
+
+    /**
+      *
+      */
+    test("test errors") {
+        // Producer defined after consumer.
+        try
+            NCTokenEnricherGraph.validate(tokParser, Seq(dict, nlp), Seq.empty)
+            require(false)
+        catch case e: NCException => println(s"Expected error: ${e.getMessage}")
+
+        try
+            NCTokenEnricherGraph.validate(tokParser, Seq(Enricher("e1", Set("p2"), Set("p1")), Enricher("e2", Set("p1"), Set("p2"))), Seq.empty)
+            require(false)
+        catch case e: NCException => println(s"Expected error: ${e.getMessage}")
+
+        // Property is checked even if some enrichers don't declare their properties.
+        try
+            NCTokenEnricherGraph.validate(tokParser, Seq(stop, undecl, nlp), Seq.empty)
+            require(false)
+        catch case e: NCException => println(s"Expected error: ${e.getMessage}")
+
+        try
+            NCTokenEnricherGraph.validate(tokParser, Seq(stop, swear), Seq.empty)
+            require(false)
+        catch case e: NCException => println(s"Expected error: ${e.getMessage}")
+
+        NCTokenEnricherGraph.validate(tokParser, Seq(nlp, stop, swear, dict), Seq.empty)
+
+        // Properties can be produced by the token parser.
+        NCTokenEnricherGraph.validate(
+            new NCTokenParser:
+                override def tokenize(text: String): List[NCToken] = List.empty
+                override def getProducedTokenProperties: Set[String] = Set("pos", "lemma")
+            ,
+            Seq(stop),
+            Seq.empty
+        )
+
+        // Enrichers without declared properties can produce anything.
+        NCTokenEnricherGraph.validate(tokParser, Seq(undecl, stop), Seq.empty)
+
+        // Required property is produced by the enricher defined before, undeclared enricher doesn't matter.
+        NCTokenEnricherGraph.validate(tokParser, Seq(nlp, undecl, dict), Seq.empty)
+        require(names(NCTokenEnricherGraph.mkLevels(Seq(nlp, undecl, dict))) == Seq(Seq("nlp"), Seq("undecl"), Seq("dict")))
+    }
+
+    /**
+      *
+      */
+    test("test undeclared token parser") {
+        // Token parser without declared properties can produce anything, missed properties are only reported.
+        NCTokenEnricherGraph.validate(undeclTokParser, Seq(stop, swear), Seq.empty)
+        NCTokenEnricherGraph.validate(undeclTokParser, Seq(dict, nlp), Seq.empty)
+        NCTokenEnricherGraph.validate(undeclTokParser, Seq(nlp, stop, swear, dict), Seq.empty)
+    }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.impl
+
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.ForkJoinPool
+import scala.jdk.CollectionConverters.*
+import scala.util.Random
+
+/**
+  *
+  */
+class NCVariantsGeneratorSpec extends AnyFunSuite:
+    private case class Item(id: Int, keys: Set[Int])
+
+    private def generate(items: Seq[Item], max: Int = Int.MaxValue): Set[Set[Item]] =
+        NCVariantsGenerator.generate(items.toIndexedSeq, _.keys, max).map(_.toSet).toSet
+
+    // Reference power set based implementation.
+    private def generateRef(items: Seq[Item], pool: ForkJoinPool): Set[Set[Item]] =
+        val rows = items.flatMap(_.keys).distinct.map(k => items.filter(_.keys.contains(k)).toSet).filter(_.sizeIs > 1)
+
+        if rows.isEmpty then Set(items.toSet)
+        else
+            NCModelPipelineHelper.findCombinations(rows.map(_.asJava).asJava, pool).asScala.
+                map(del => items.filterNot(del.asScala.toSet.contains).toSet).toSet
+
+    private def mkRandom(rnd: Random, n: Int, keys: Int): Seq[Item] =
+        (0 until n).map(i =>
+            val from = rnd.nextInt(keys)
+            Item(i, (from to Math.min(keys - 1, from + rnd.nextInt(3))).toSet)
+        )
+
+    /**
+      *
+      */
+    test("test same as reference") {
+        val rnd = new Random(0)
+        val pool = new ForkJoinPool()
+
+        try
+            for (_ <- 0 until 200)
+                val items = mkRandom(rnd, 1 + rnd.nextInt(14), 1 + rnd.nextInt(10))
+
+                require(generate(items) == generateRef(items, pool), s"Unexpected variants for: $items")
+        finally
+            pool.shutdown()
+    }
+
+    /**
+      *
+      */
+    test("test limit") {
+        // Chain of 100 overlapping items, which cannot be processed by the reference implementation.
+        val items = (0 until 100).map(i => Item(i, Set(i, i + 1)))
+        val vars = NCVariantsGenerator.generate(items, _.keys, 1000)
+
+        require(vars.sizeIs == 1000)
+        require(vars.distinct.sizeIs == 1000)
+
+        for (v <- vars)
+            val keys = v.flatMap(_.keys)
+
+            // Non-overlapping.
+            require(keys.distinct.sizeIs == keys.size)
+            // Maximal.
+            require(items.forall(i => v.contains(i) || i.keys.exists(keys.contains)))
+
+        // Items without overlaps are in each variant.
+        require(generate(Seq(Item(0, Set(0)), Item(1, Set(1)), Item(2, Set(1)))) == Set(Set(Item(0, Set(0)), Item(1, Set(1))), Set(Item(0, Set(0)), Item(2, Set(1)))))
+    }
+
+    /**
+      *
+      */
+    test("test limit keeps best") {
+        // Each group has the better item (2 keys) and the worse one (1 key) overlapping with it.
+        val goods = (0 until 10).map(g => Item(g, Set(2 * g, 2 * g + 1)))
+        val bads = (0 until 10).map(g => Item(100 + g, Set(2 * g)))
+        val items = goods.zip(bads).flatMap { (g, b) => Seq(b, g) }
+
+        require(NCVariantsGenerator.generate(items, _.keys, 1).map(_.toSet) == List(goods.toSet))
+
+        val vars = NCVariantsGenerator.generate(items, _.keys, 11)
+
+        require(vars.sizeIs == 11)
+        require(vars.head.toSet == goods.toSet)
+        // The next best variants have only one worse item.
+        require(vars.tail.forall(_.count(bads.contains) == 1))
+    }
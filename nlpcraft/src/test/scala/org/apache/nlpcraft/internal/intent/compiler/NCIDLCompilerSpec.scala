@@ -303,3 +303,50 @@ class NCIDLCompilerSpec extends AnyFunSuite:
         test0(" ")
     }
 
+    test("test function calls") {
+        checkCompileOk("intent=i term={list() == list()}")
+        checkCompileOk("intent=i term={size(list(1, 2, 3)) == 3}")
+        checkCompileOk("intent=i term={# == 'a' && ent_type(ent_this()) == 'a'}")
+        checkCompileOk("intent=i term={substr('abc', 0, 1) == 'a'}")
+
+        checkCompileError("intent=i term={substr('abc', 1) == 'a'}")
+        checkCompileError("intent=i term={trim() == 'a'}")
+        checkCompileError("intent=i term={mdl_id(1) == 'a'}")
+        checkCompileError("intent=i term={ent_type(ent_this(), 1) == 'a'}")
+    }
+
+    test("test entity types") {
+        def test0(term: String, exp: Option[Set[String]]): Unit =
+            val intents = compiler.compile(s"intent=i term(t)={$term}", "test-origin")
+
+            require(intents.head.terms.head.entTypes == exp, s"Unexpected types for: $term")
+
+        test0("# == 'a'", Some(Set("a")))
+        test0("'a' == ent_type", Some(Set("a")))
+        test0("(# == 'a' || # == 'b') && has(ent_groups, 'g')", Some(Set("a", "b")))
+        test0("# == 'a' && # == 'b'", Some(Set.empty))
+        test0("# == 'a' || has(ent_groups, 'g')", None)
+        test0("# != 'a'", None)
+        test0("2 == 2", None)
+
+        // Optional and conversation terms aren't intent prerequisites.
+        val i = compiler.compile("intent=i term={# == 'a'} term={# == 'b'}? term~{# == 'c'} term={true}", "test-origin").head
+
+        require(i.requiredEntTypes == Seq(Set("a")))
+    }
+
+    test("test predicate keys") {
+        def getKey(term: String): Option[String] =
+            compiler.compile(s"intent=i term(t)=$term", "test-origin").head.terms.head.predKey
+
+        // Structurally identical predicates have the same key.
+        require(getKey("{# == 'a' && meta_ent('k') == 1}").isDefined)
+        require(getKey("{# == 'a'}") == getKey("{ # == 'a' }*"))
+        require(getKey("{@x = 1 # == 'a' && @x == 1}") != getKey("{@x = 2 # == 'a' && @x == 1}"))
+
+        // Results depend on the term evaluation context.
+        require(getKey("{# == 'a' && meta_intent('k') == 1}").isEmpty)
+        require(getKey("{# == 'a' && ent_index == 1}").isEmpty)
+        require(getKey("{@x = ent_count # == 'a' && @x == 1}").isEmpty)
+        require(getKey("{# == 'a' && rand() < 1}").isEmpty)
+    }
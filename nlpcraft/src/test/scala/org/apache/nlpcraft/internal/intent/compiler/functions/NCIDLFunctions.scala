@@ -46,16 +46,18 @@ private[functions] object NCIDLFunctions:
       * @param idlCtx
       * @param expectedRes
       * @param entitiesUsed
+      * @param funs
       */
     case class TestDesc(
         truth: String,
         entity: Option[NCEntity] = None,
         idlCtx: NCIDLContext,
         expectedRes: Boolean = true,
-        entitiesUsed: Option[Int] = None
+        entitiesUsed: Option[Int] = None,
+        funs: Map[String, NCIntentFunction] = Map.empty
     ):
         lazy val term: NCIDLTerm =
-            val intents = new NCIDLCompiler(idlCtx.mdlCfg).compile(s"intent=i term(t)={$truth}", MODEL_ID)
+            val intents = new NCIDLCompiler(idlCtx.mdlCfg, funs).compile(s"intent=i term(t)={$truth}", MODEL_ID)
 
             require(intents.size == 1)
             require(intents.head.terms.sizeIs == 1)
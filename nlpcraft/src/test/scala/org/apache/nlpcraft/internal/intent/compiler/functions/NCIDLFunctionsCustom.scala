@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.intent.compiler.functions
+
+import org.apache.nlpcraft.*
+import org.apache.nlpcraft.internal.intent.compiler.*
+import org.apache.nlpcraft.internal.intent.compiler.functions.NCIDLFunctions.*
+import org.apache.nlpcraft.nlp.util.*
+
+import scala.language.implicitConversions
+
+/**
+  * Tests for model custom functions.
+  */
+class NCIDLFunctionsCustom extends NCIDLFunctions:
+    private val funs: Map[String, NCIntentFunction] = Map(
+        "my_concat" -> new NCIntentFunction:
+            override def getMinArgs: Int = 1
+            override def call(args: List[Any]): Any = args.mkString,
+        "my_text" -> new NCIntentFunction:
+            override def getMinArgs: Int = 1
+            override def getMaxArgs: Int = 1
+            override def call(args: List[Any]): Any = args.head.asInstanceOf[NCEntity].mkText,
+        "my:seq-size" -> new NCIntentFunction:
+            override def call(args: List[Any]): Any = args.size
+    )
+
+    test("test custom functions") {
+        val ent = mkEntity(tokens = NCTestToken(txt = "token", idx = 1))
+
+        def mkDesc(truth: String): TestDesc =
+            new TestDesc(truth = truth, entity = Some(ent), idlCtx = mkIdlContext(entities = Seq(ent)), funs = funs)
+
+        test(
+            mkDesc("my_concat('a', 1, true) == 'a1true'"),
+            mkDesc("my_concat(my_concat('a'), 'b') == 'ab'"),
+            mkDesc("my_text(ent_this()) == 'token'"),
+            mkDesc("my:seq-size == 0"),
+            mkDesc("my:seq-size(1, 2) == 2")
+        )
+    }
+
+    test("test custom functions errors") {
+        val compiler = new NCIDLCompiler(CFG, funs)
+
+        def checkError(idl: String): Unit =
+            try
+                compiler.compile(idl, "test.mdl.id")
+
+                require(false)
+            catch case e: NCException => println(s"Expected error: ${e.getMessage}")
+
+        // Unknown function.
+        checkError("intent=i term={my_unknown(1) == 1}")
+        // Wrong number of the parameters.
+        checkError("intent=i term={my_concat() == ''}")
+        checkError("intent=i term={my_text(ent_this(), 1) == ''}")
+
+        def checkDefError(name: String): Unit =
+            try
+                new NCIDLCompiler(CFG, Map(name -> funs("my_concat")))
+
+                require(false)
+            catch case e: NCException => println(s"Expected error: ${e.getMessage}")
+
+        // Built-in function name clash.
+        checkDefError("trim")
+        // Invalid function names.
+        checkDefError("my fun")
+        checkDefError("1fun")
+    }
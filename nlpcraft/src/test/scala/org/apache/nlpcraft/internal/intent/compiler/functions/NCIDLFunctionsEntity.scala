@@ -165,4 +165,21 @@ class NCIDLFunctionsEntity extends NCIDLFunctions:
                 idlCtx = ctx
             )
         )
-    }
\ No newline at end of file
+    }
+
+    test("test compiled predicate reuse") {
+        val e1 = mkEntity(typ = "a", tokens = NCTestToken(idx = 0))
+        val e2 = mkEntity(typ = "b", tokens = NCTestToken(idx = 1))
+
+        val ctx = mkIdlContext(entities = Seq(e1, e2))
+        val ents = ctx.entities
+        val pred = TestDesc(truth = "# == 'a' && size(reverse(list(ent_index, 1))) == 2", entity = e1, idlCtx = ctx).term.pred
+
+        // The same compiled expression is evaluated for different entities concurrently.
+        java.util.stream.IntStream.range(0, 1000).parallel().forEach(i =>
+            val res = pred(ents(i % 2), ctx)
+
+            require(res.value == JBool.valueOf(i % 2 == 0), s"Unexpected result for entity: ${ents(i % 2).impl.getType}")
+            require(res.entUse == (if i % 2 == 0 then 2 else 1))
+        )
+    }
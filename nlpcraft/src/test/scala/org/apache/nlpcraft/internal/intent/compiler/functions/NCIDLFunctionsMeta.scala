@@ -68,6 +68,18 @@ class NCIDLFunctionsMeta extends NCIDLFunctions:
         )
     }
 
+    test("test conversation meta changed within request") {
+        val idlCtx = mkIdlContext(convMeta = Map("k1" -> "v1"))
+        val desc = TestDesc(truth = "meta_conv('k1') == 'v1' && meta_conv('k1') == 'v1'", idlCtx = idlCtx)
+
+        test(desc)
+
+        // The same request is matched again after the intent callback changed the conversation data.
+        val z = desc.term.pred.apply(null, idlCtx.copy(convMeta = Map("k1" -> "v2")))
+
+        require(z.value == java.lang.Boolean.FALSE)
+    }
+
     test("test fragment meta") {
         testValue(
             "meta_frag",
@@ -18,6 +18,8 @@
 package org.apache.nlpcraft.internal.intent.compiler.functions
 
 import org.apache.nlpcraft.internal.intent.compiler.functions.NCIDLFunctions.*
+import org.apache.nlpcraft.internal.intent.compiler.functions.NCIDLFunctions.given
+import org.apache.nlpcraft.nlp.util.NCTestToken
 
 import scala.language.implicitConversions
 import scala.sys.SystemProperties
@@ -37,6 +39,27 @@ class NCIDLFunctionsOther extends NCIDLFunctions:
         )
     }
 
+    test("test short-circuit") {
+        val ent = mkEntity(tokens = NCTestToken(idx = 5))
+
+        def mkDesc(truth: String, res: Boolean = true): TestDesc =
+            new TestDesc(truth = truth, entity = Some(ent), idlCtx = mkIdlContext(entities = Seq(ent)), expectedRes = res)
+
+        // Right operands fail if they are evaluated.
+        test(
+            mkDesc("ent_index == 1 && 1 / 0 == 1", res = false),
+            mkDesc("ent_index == 5 || 1 / 0 == 1"),
+            mkDesc("ent_index == 1 && ent_index == 1 / 0 || ent_index == 5"),
+            mkDesc("if(ent_index == 5, 1, 1 / 0) == 1"),
+            mkDesc("if(ent_index == 1, 1 / 0, 2) == 2"),
+            mkDesc("or_else(ent_index, 1 / 0) == 5"),
+            mkDesc("false && 1 / 0 == 1", res = false)
+        )
+
+        // Not evaluated right operand doesn't hide the left operand type error.
+        expectError(mkDesc("ent_index && 1 / 0 == 1"))
+    }
+
     test("test 2") {
         val sys = new SystemProperties
 
@@ -71,3 +94,19 @@ class NCIDLFunctionsOther extends NCIDLFunctions:
             "null == null"
         )
     }
+
+    test("test optimized expressions") {
+        test(
+            // Folded constant with the error in the branch which is never evaluated.
+            "if(false, 1 / 0, 2) == 2",
+            // Folded constant list isn't changed by the functions.
+            "first(sort(list(3, 1, 2))) == 1 && first(list(3, 1, 2)) == 3",
+            // Request invariant expressions.
+            TestDesc(truth = "req_id == 'r1' && req_id == 'r1'", idlCtx = mkIdlContext(reqId = "r1")),
+            // Repeated entity dependent expression.
+            TestDesc(
+                truth = "first(reverse(list(ent_index, 1))) == 1 && first(list(ent_index, 1)) == ent_index",
+                entity = mkEntity(tokens = NCTestToken(idx = 5))
+            )
+        )
+    }
@@ -17,7 +17,10 @@
 
 package org.apache.nlpcraft.internal.intent.compiler.functions
 
+import org.apache.nlpcraft.internal.intent.NCIDLPatternCache
+import org.apache.nlpcraft.internal.intent.compiler.NCIDLCompiler
 import org.apache.nlpcraft.internal.intent.compiler.functions.NCIDLFunctions.*
+import org.apache.nlpcraft.nlp.util.*
 
 import scala.language.implicitConversions
 
@@ -88,4 +91,25 @@ class NCIDLFunctionsStrings extends NCIDLFunctions:
             "to_double('1, 1') == true",
             "to_double('A') == true"
         )
-    }
\ No newline at end of file
+    }
+
+    test("test regex cache") {
+        val cache = new NCIDLPatternCache(1)
+        val compiler = new NCIDLCompiler(CFG, cache)
+
+        def eval(truth: String, txt: String = null): Boolean =
+            val term = compiler.compile(s"intent=i term(t)={$truth}", "test.mdl.id").head.terms.head
+
+            term.pred(null, mkIdlContext(txt = txt)).value.asInstanceOf[Boolean]
+
+        // Constant patterns are compiled with the intent.
+        require(eval("regex('abc', '^a.*$') && replace('abc', 'b', 'X') == 'aXc' && split_trim('a, b', ',') == list('a', 'b')"))
+        require(cache.getHits == 0 && cache.getMisses == 0)
+
+        // Dynamic patterns are cached.
+        require(eval("regex('abc', req_text)", "^a.*$"))
+        require(eval("regex('abc', req_text)", "^a.*$"))
+        require(!eval("regex('abc', req_text)", "^b.*$"))
+        require(eval("replace('abc', req_text, 'X') == 'aXc'", "b"))
+        require(cache.getHits == 1 && cache.getMisses == 3 && cache.size == 1)
+    }
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.internal.util
+
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.Executors
+
+/**
+  *
+  */
+class NCLruCacheSpec extends AnyFunSuite:
+    test("test eviction") {
+        val cache = new NCLruCache[String, String](10)
+
+        for (i <- 0 until 10)
+            cache.put(s"k$i", s"v$i")
+            Thread.sleep(1)
+
+        // Last access time is updated by lookup.
+        require(cache.get("k0") == "v0")
+        require(cache.get("unknown") == null)
+
+        // Least recently used entries are evicted.
+        Thread.sleep(1)
+        cache.put("k10", "v10")
+
+        require(cache.size == 9)
+        require(cache.get("k0") == "v0" && cache.get("k10") == "v10" && cache.get("k1") == null)
+
+        val empty = new NCLruCache[String, String](0)
+
+        empty.put("k", "v")
+        require(empty.get("k") == null && empty.size == 0)
+    }
+
+    test("test concurrent access") {
+        val cache = new NCLruCache[String, String](100)
+        val pool = Executors.newFixedThreadPool(8)
+
+        try
+            NCUtils.execParResults(
+                (0 until 8).map(t => () =>
+                    for (i <- 0 until 10000)
+                        val k = s"k${(i * (t + 1)) % 500}"
+                        val v = cache.get(k)
+
+                        if v == null then cache.put(k, k.toUpperCase) else require(v == k.toUpperCase)
+                )
+            )(pool)
+        finally
+            NCUtils.shutdownPool(pool)
+
+        require(cache.size <= 100)
+    }
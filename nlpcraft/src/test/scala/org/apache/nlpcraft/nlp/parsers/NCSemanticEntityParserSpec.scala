@@ -122,4 +122,48 @@ class NCSemanticEntityParserSpec extends AnyFunSuite:
         check("B", "t8")
 
         checkMultiple("t1 the x abc the x the abc", "t1", "t7", "t7")
-    }
\ No newline at end of file
+    }
+
+    /**
+      *
+      */
+    test("test skipped stopwords") {
+        def getTypes(txt: String, maxSkip: Int): Seq[String] =
+            val cfg = new NCPropertyMapAdapter with NCModelConfig:
+                override val getId: String = CFG.getId
+                override val getName: String = CFG.getName
+                override val getVersion: String = CFG.getVersion
+                override val getMaxSkippedStopWords: Int = maxSkip
+
+            val req = NCTestRequest(txt)
+            val toks = EN_TOK_PARSER.tokenize(txt)
+
+            EN_TOK_LEMMA_POS_ENRICHER.enrich(req, cfg, toks)
+            EN_TOK_STOP_ENRICHER.enrich(req, cfg, toks)
+
+            semParser.parse(req, cfg, toks).map(_.getType)
+
+        require(getTypes("value the 5", 1) == Seq("t5"))
+        require(getTypes("value the 5", 0).isEmpty)
+        require(getTypes("t1 the x abc the x the abc", 0).sorted == Seq("t1", "t7"))
+        require(getTypes("t1 the x abc the x the abc", 1).sorted == Seq("t1", "t7", "t7"))
+
+        // Number of the skipped stopwords isn't limited by default.
+        require(getTypes("value the the the the 5", NCModelConfig.DFLT_MAX_SKIPPED_STOPWORDS) == Seq("t5"))
+        require(getTypes("value the the the the 5", 3).isEmpty)
+
+        // Invalid limit is rejected when the model client is created.
+        val cfg = new NCPropertyMapAdapter with NCModelConfig:
+            override val getId: String = CFG.getId
+            override val getName: String = CFG.getName
+            override val getVersion: String = CFG.getVersion
+            override val getMaxSkippedStopWords: Int = -1
+
+        val mdl: NCModel = new NCModel(cfg, new NCPipelineBuilder().withTokenParser(EN_TOK_PARSER).withEntityParser(semParser).build):
+            override def onContext(ctx: NCContext): Option[NCResult] = TEST_RESULT.?
+
+        try
+            new NCModelClient(mdl).close()
+            require(false)
+        catch case e: IllegalArgumentException => println(s"Expected error: ${e.getMessage}")
+    }
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.nlp.parsers
+
+import org.apache.nlpcraft.nlp.parsers.impl.*
+import org.scalatest.funsuite.AnyFunSuite
+
+/**
+  *
+  */
+class NCSemanticSynonymsTrieSpec extends AnyFunSuite:
+    private def mkElem(typ: String): NCSemanticSynonymsElementData = NCSemanticSynonymsElementData(typ, None)
+
+    private val trie = new NCSemanticSynonymsTrie(
+        Map(
+            "new york city" -> Set(mkElem("city")),
+            "go home" -> Set(mkElem("home")),
+            "run" -> Set(mkElem("run")),
+            "running" -> Set(mkElem("running"))
+        )
+    )
+
+    /**
+      * Gets stems IDs alternatives of the token.
+      *
+      * @param stems Token stems, e.g. text stem and lemma stem.
+      */
+    private def tok(stems: String*): Seq[Int] = stems.map(trie.getId)
+
+    private def find(toks: Seq[Int]*): Option[Set[String]] = trie.find(toks.toList).map(_.map(_.elementType))
+
+    test("test ids") {
+        require(trie.maxSize == 3)
+        require(trie.getId("york") >= 0)
+        require(trie.getId("unknown") == -1)
+    }
+
+    test("test prefix") {
+        require(find(tok("new"), tok("york"), tok("city")).contains(Set("city")))
+
+        // Prefix of the synonym, but not a synonym.
+        require(find(tok("new"), tok("york")).isEmpty)
+        require(find(tok("new")).isEmpty)
+        // Not a prefix of any synonym.
+        require(find(tok("york"), tok("city")).isEmpty)
+        require(find().isEmpty)
+    }
+
+    test("test lemma alternative") {
+        // Text stem is unknown, synonym is found by the lemma stem.
+        require(trie.getId("went") == -1)
+        require(find(tok("went", "go"), tok("home")).contains(Set("home")))
+        // Text stem is known, but it doesn't continue the synonym.
+        require(find(tok("run", "go"), tok("home")).contains(Set("home")))
+        require(find(tok("went"), tok("home")).isEmpty)
+    }
+
+    test("test text stem first") {
+        // Both alternatives are synonyms, the first one is used.
+        require(find(tok("running", "run")).contains(Set("running")))
+        require(find(tok("run", "running")).contains(Set("run")))
+    }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.nlp.parsers.impl
+
+import org.apache.nlpcraft.*
+import org.apache.nlpcraft.nlp.parsers.impl.NCSemanticChunkKind.*
+import org.apache.nlpcraft.nlp.util.NCTestToken
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.regex.Pattern
+
+/**
+  *
+  */
+class NCSemanticMixedSynonymsSpec extends AnyFunSuite:
+    private def txt(s: String): NCSemanticSynonymChunk = NCSemanticSynonymChunk(TEXT, s, stem = s)
+    private def rx(s: String): NCSemanticSynonymChunk = NCSemanticSynonymChunk(REGEX, s, regex = Pattern.compile(s))
+
+    /**
+      *
+      * @param words Tokens texts, with optional lemmas after `/`, e.g. `went/go`.
+      */
+    private def mkToks(words: String*): Seq[NCToken] =
+        words.zipWithIndex.map { (w, i) =>
+            w.split("/") match
+                case Array(t, l) => NCTestToken(txt = t, idx = i, data = Map("lemma" -> l))
+                case _ => NCTestToken(txt = w, idx = i)
+        }
+
+    private def getStems(t: NCToken): Seq[String] = Seq(t.getText) ++ t.get[String]("lemma")
+
+    /**
+      * Finds synonyms, counting the regex matches.
+      *
+      * @param syns
+      * @param words
+      * @return Found elements data and number of the regex checks.
+      */
+    private def find(syns: Map[String, Seq[NCSemanticSynonym]], words: String*): (Seq[NCSemanticSynonymsElementData], Int) =
+        val toks = mkToks(words*)
+        var cnt = 0
+
+        val res = new NCSemanticMixedSynonyms(Map(toks.size -> syns)).find(
+            toks,
+            getStems,
+            (p, t) => { cnt += 1; p.matcher(t.getText).matches() }
+        )
+
+        (res, cnt)
+
+    private def types(syns: Map[String, Seq[NCSemanticSynonym]], words: String*): Seq[String] = find(syns, words*)._1.map(_.elementType)
+
+    test("test text chunk position") {
+        // First text chunk isn't the first chunk of the synonym.
+        val syns = Map("fruit" -> Seq(NCSemanticSynonym(Seq(rx("\\d+"), txt("apples")))))
+
+        require(types(syns, "5", "apples") == Seq("fruit"))
+        require(types(syns, "apples", "5").isEmpty)
+
+        // Synonym is not a candidate, its regex isn't checked.
+        val (res, cnt) = find(syns, "5", "pears")
+
+        require(res.isEmpty && cnt == 0)
+    }
+
+    test("test regex only synonyms") {
+        val syns = Map(
+            "fruit" -> Seq(NCSemanticSynonym(Seq(rx("\\d+"), txt("apples")))),
+            "num" -> Seq(NCSemanticSynonym(Seq(rx("\\d+"), rx("[a-z]+"))))
+        )
+
+        // Synonyms without text chunks are checked for any tokens.
+        require(types(syns, "5", "apples") == Seq("fruit", "num"))
+        require(types(syns, "5", "pears") == Seq("num"))
+        require(types(syns, "pears", "5").isEmpty)
+    }
+
+    test("test first synonym of element") {
+        val syns = Map(
+            "multi" -> Seq(
+                NCSemanticSynonym(Seq(txt("x"), rx("\\d+")), value = "v1"),
+                NCSemanticSynonym(Seq(rx("[a-z]"), rx("\\d+")), value = "v2")
+            )
+        )
+
+        // Both synonyms match, only the first one is used.
+        val (res, _) = find(syns, "x", "5")
+
+        require(res == Seq(NCSemanticSynonymsElementData("multi", Some("v1"))))
+        require(find(syns, "y", "5")._1 == Seq(NCSemanticSynonymsElementData("multi", Some("v2"))))
+    }
+
+    test("test lemma stem") {
+        val syns = Map("go" -> Seq(NCSemanticSynonym(Seq(txt("go"), rx("home|away")))))
+
+        // Text chunk matches the token lemma stem.
+        require(types(syns, "went/go", "home") == Seq("go"))
+        require(types(syns, "go", "away") == Seq("go"))
+        require(types(syns, "went", "home").isEmpty)
+        require(types(syns, "went/go", "back").isEmpty)
+    }
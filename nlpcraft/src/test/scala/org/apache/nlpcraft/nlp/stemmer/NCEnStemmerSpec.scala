@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nlpcraft.nlp.stemmer
+
+import opennlp.tools.stemmer.PorterStemmer
+import org.apache.nlpcraft.internal.util.NCUtils
+import org.apache.nlpcraft.nlp.util.NCTestRequest
+import org.scalatest.funsuite.AnyFunSuite
+
+import java.util.concurrent.Executors
+
+/**
+  *
+  */
+class NCEnStemmerSpec extends AnyFunSuite:
+    private val roots = Seq("connect", "relat", "generaliz", "happi", "run", "nation", "hope", "sensit", "form", "adjust")
+    private val suffixes = Seq("", "s", "ed", "ing", "ion", "ions", "ational", "ization", "ness", "ful", "ly", "ement", "ively")
+    private val words = for (r <- roots; s <- suffixes) yield r + s
+
+    test("test concurrent stems") {
+        // Expected stems, by the single threaded Porter stemmer.
+        val exp = words.map(w => w -> new PorterStemmer().stem(w)).toMap
+        val stemmers = Seq(new NCEnStemmer, new NCEnStemmer)
+        val pool = Executors.newFixedThreadPool(8)
+
+        try
+            val res = NCUtils.execParResults(
+                (0 until 32).map(i => () => {
+                    val stemmer = stemmers(i % stemmers.size)
+
+                    for (_ <- 0 until 20; w <- scala.util.Random.shuffle(words)) yield w -> stemmer.stem(w)
+                })
+            )(pool)
+
+            for ((w, stem) <- res.flatten) require(stem == exp(w), s"Unexpected stem [word=$w, stem=$stem, expected=${exp(w)}]")
+        finally
+            NCUtils.shutdownPool(pool)
+    }
+
+    test("test request stems") {
+        var cnt = 0
+
+        val stemmer = new NCStemmer:
+            override def stem(word: String): String =
+                cnt += 1
+                word.take(3)
+
+        val req1 = new NCTestRequest("Running RUNNING") with NCRequestStems
+        val req2 = new NCTestRequest("running") with NCRequestStems
+
+        // Words are stemmatized once per request, in the lower case.
+        require(NCRequestStems.stem(req1, stemmer, "Running") == "run")
+        require(NCRequestStems.stem(req1, stemmer, "RUNNING") == "run")
+        require(NCRequestStems.stem(req1, stemmer, "running") == "run")
+        require(cnt == 1)
+
+        require(NCRequestStems.stem(req2, stemmer, "running") == "run")
+        require(cnt == 2)
+
+        // Request without the stems cache.
+        require(NCRequestStems.stem(NCTestRequest("running"), stemmer, "running") == "run")
+        require(cnt == 3)
+
+        // English stemmers instances share the request stems.
+        require(NCRequestStems.stem(req1, new NCEnStemmer, "running") == "run")
+        require(NCRequestStems.stem(req1, new NCEnStemmer, "running") == "run")
+        require(req1.stems.size() == 2)
+    }